@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils.bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary JMH counters reporting the remote commands issued per benchmark
+ * operation. JMH prints both counters per iteration; their ratio is the
+ * commands/op figure.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.EVENTS)
+public class CommandCounters {
+
+  /** Commands the fake driver saw. */
+  public long commands;
+
+  /** WTFUtil calls made. */
+  public long calls;
+
+  @Setup(Level.Iteration)
+  public void reset() {
+    commands = 0;
+    calls = 0;
+  }
+
+  /**
+   * Attributes every command issued since {@code before} to one call.
+   */
+  void record(FakeWebDriver driver, long before) {
+    commands += driver.getCommandCount() - before;
+    calls++;
+  }
+}
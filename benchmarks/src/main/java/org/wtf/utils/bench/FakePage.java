@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils.bench;
+
+import org.openqa.selenium.By;
+
+/**
+ * Builds the fake equivalent of the WebUtilTest page: every control exists on
+ * the document and again inside the {@code parent} sub DOM, in a state where
+ * each WTFUtil condition is satisfied on its first poll.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public class FakePage {
+
+  public static final By PARENT = By.className("parent");
+  public static final By BUTTON = By.className("button1");
+  public static final By INVISIBLE_BUTTON = By.className("buttonInvisible");
+  public static final By HOVER_BUTTON = By.className("buttonHover");
+  public static final By CHECKBOX_SELECTED = By.className("checkboxSelected");
+  public static final By CHECKBOX_NOT_SELECTED = By.className("checkboxNotSelected");
+  public static final By TEXTBOX = By.className("textbox1");
+  public static final By DIV_WITH_TEXT = By.className("divWithText");
+  public static final By DIV_WITH_ATTRIBUTE = By.className("divWithCustomAttribute");
+  public static final By SELECT = By.className("select");
+  public static final By MENU_ITEM = By.className("menuItem");
+  public static final By SCROLLBAR = By.className("scrollbar");
+
+  public static final String TEXT = "Hello";
+  public static final String ATTRIBUTE_NAME = "qaID";
+  public static final String ATTRIBUTE_VALUE = "qaid";
+
+  private FakePage() {
+    // Utility class
+  }
+
+  /**
+   * @param latencyNanos the simulated round trip of every command
+   * @return a driver already showing the page
+   */
+  public static FakeWebDriver create(long latencyNanos) {
+    FakeWebDriver driver = new FakeWebDriver();
+    driver.setLatencyNanos(latencyNanos);
+
+    FakeWebElement parent = driver.add(PARENT, driver.newElement("div"));
+    populate(driver, parent);
+    populate(driver, null);
+
+    for (int i = 0; i < 4; i++) {
+      driver.add(MENU_ITEM, driver.newElement("li").withText("item" + i));
+    }
+    driver.add(SCROLLBAR, driver.newElement("div"));
+    driver.resetCommandCount();
+    return driver;
+  }
+
+  private static void populate(FakeWebDriver driver, FakeWebElement parent) {
+    add(driver, parent, BUTTON, driver.newElement("input").withAttribute("value", "click"));
+    add(driver, parent, INVISIBLE_BUTTON, driver.newElement("input").withDisplayed(false));
+    add(driver, parent, HOVER_BUTTON, driver.newElement("input"));
+    add(driver, parent, CHECKBOX_SELECTED, driver.newElement("input").withSelected(true));
+    add(driver, parent, CHECKBOX_NOT_SELECTED, driver.newElement("input"));
+    add(driver, parent, TEXTBOX, driver.newElement("input").withAttribute("value", ""));
+    add(driver, parent, DIV_WITH_TEXT, driver.newElement("div").withText(TEXT));
+    add(driver, parent, DIV_WITH_ATTRIBUTE,
+        driver.newElement("div").withAttribute(ATTRIBUTE_NAME, ATTRIBUTE_VALUE));
+
+    FakeWebElement select = add(driver, parent, SELECT, driver.newElement("select"));
+    String[] cars = {"Volvo", "Saab", "Mercedes", "Audi"};
+    for (int i = 0; i < cars.length; i++) {
+      select.add(By.tagName("option"), driver.newElement("option").withText(cars[i])
+          .withAttribute("value", cars[i].toLowerCase()).withSelected(i == 0));
+    }
+  }
+
+  private static FakeWebElement add(FakeWebDriver driver, FakeWebElement parent, By by,
+      FakeWebElement element) {
+    return parent == null ? driver.add(by, element) : parent.add(by, element);
+  }
+}
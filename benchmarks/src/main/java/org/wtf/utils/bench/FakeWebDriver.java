@@ -0,0 +1,263 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils.bench;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.HasInputDevices;
+import org.openqa.selenium.interactions.Keyboard;
+import org.openqa.selenium.interactions.Mouse;
+
+/**
+ * A scriptable, in-memory WebDriver used to measure what WTFUtil itself costs
+ * per call. Every method that would be a wire command on a remote driver is
+ * counted and delayed by a configurable per-command latency. Elements are
+ * registered up front against the locator that should find them.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public class FakeWebDriver implements WebDriver, JavascriptExecutor, HasInputDevices {
+
+  /**
+   * Answers executeScript and executeAsyncScript calls made on the fake.
+   */
+  public interface ScriptHandler {
+    Object execute(FakeWebDriver driver, String script, Object[] args);
+  }
+
+  private final Map<String, List<FakeWebElement>> elements =
+      new HashMap<String, List<FakeWebElement>>();
+  private final Keyboard keyboard = commandProxy(Keyboard.class, true);
+  private final Mouse mouse = commandProxy(Mouse.class, true);
+
+  private long latencyNanos;
+  private long commands;
+  private String currentUrl = "about:blank";
+  private ScriptHandler scriptHandler;
+
+  /**
+   * @param latencyNanos the simulated round trip added to every command
+   */
+  public void setLatencyNanos(long latencyNanos) {
+    this.latencyNanos = latencyNanos;
+  }
+
+  /**
+   * @param scriptHandler answers scripts, or null to return null for every script
+   */
+  public void setScriptHandler(ScriptHandler scriptHandler) {
+    this.scriptHandler = scriptHandler;
+  }
+
+  /**
+   * @return the number of commands issued since creation or the last reset
+   */
+  public long getCommandCount() {
+    return commands;
+  }
+
+  public void resetCommandCount() {
+    commands = 0;
+  }
+
+  /**
+   * Creates an element owned by this driver, not yet reachable by any locator.
+   */
+  public FakeWebElement newElement(String tagName) {
+    return new FakeWebElement(this, tagName);
+  }
+
+  /**
+   * Makes the element reachable from the document root using the locator.
+   */
+  public FakeWebElement add(By by, FakeWebElement element) {
+    register(elements, by, element);
+    return element;
+  }
+
+  /**
+   * Simulates one wire command: counts it and waits for the configured
+   * latency. Short latencies spin since parking is too coarse below a
+   * millisecond.
+   */
+  void command() {
+    commands++;
+    if (latencyNanos <= 0) {
+      return;
+    }
+    long deadline = System.nanoTime() + latencyNanos;
+    long remaining = latencyNanos;
+    while (remaining > 0) {
+      if (remaining >= 1000000L) {
+        LockSupport.parkNanos(remaining);
+      }
+      remaining = deadline - System.nanoTime();
+    }
+  }
+
+  static void register(Map<String, List<FakeWebElement>> index, By by,
+      FakeWebElement element) {
+    List<FakeWebElement> found = index.get(by.toString());
+    if (found == null) {
+      found = new ArrayList<FakeWebElement>();
+      index.put(by.toString(), found);
+    }
+    found.add(element);
+  }
+
+  static List<WebElement> lookup(Map<String, List<FakeWebElement>> index, By by) {
+    List<FakeWebElement> registered = index.get(by.toString());
+    if (registered == null) {
+      return Collections.emptyList();
+    }
+    List<WebElement> found = new ArrayList<WebElement>(registered.size());
+    for (FakeWebElement element : registered) {
+      if (element.lookedUp()) {
+        found.add(element);
+      }
+    }
+    return found;
+  }
+
+  static WebElement lookupFirst(Map<String, List<FakeWebElement>> index, By by) {
+    List<WebElement> found = lookup(index, by);
+    if (found.isEmpty()) {
+      throw new NoSuchElementException("Unable to locate element: " + by);
+    }
+    return found.get(0);
+  }
+
+  /**
+   * Builds a proxy for one of the WebDriver side interfaces (options,
+   * navigation, input devices). A call counts as a command unless it is a
+   * no-argument accessor for another WebDriver interface.
+   */
+  @SuppressWarnings("unchecked")
+  <T> T commandProxy(final Class<T> type, final boolean counting) {
+    return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+        new InvocationHandler() {
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            if (method.getDeclaringClass() == Object.class) {
+              if ("equals".equals(method.getName())) {
+                return proxy == args[0];
+              }
+              return "hashCode".equals(method.getName())
+                  ? System.identityHashCode(proxy) : type.getSimpleName();
+            }
+            Class<?> returnType = method.getReturnType();
+            boolean accessor = (args == null || args.length == 0) && returnType.isInterface()
+                && returnType.getName().startsWith("org.openqa.selenium");
+            if (accessor) {
+              return commandProxy(returnType, counting);
+            }
+            if (counting) {
+              command();
+            }
+            if (returnType.isInstance(proxy)) {
+              return proxy;
+            }
+            if (returnType == boolean.class) {
+              return false;
+            }
+            if (returnType.isPrimitive() && returnType != void.class) {
+              return 0;
+            }
+            return null;
+          }
+        });
+  }
+
+  public void get(String url) {
+    command();
+    currentUrl = url;
+  }
+
+  public String getCurrentUrl() {
+    command();
+    return currentUrl;
+  }
+
+  public String getTitle() {
+    command();
+    return "";
+  }
+
+  public List<WebElement> findElements(By by) {
+    command();
+    return lookup(elements, by);
+  }
+
+  public WebElement findElement(By by) {
+    command();
+    return lookupFirst(elements, by);
+  }
+
+  public String getPageSource() {
+    command();
+    return "<html></html>";
+  }
+
+  public void close() {
+    command();
+  }
+
+  public void quit() {
+    command();
+  }
+
+  public Set<String> getWindowHandles() {
+    command();
+    return Collections.singleton("fake");
+  }
+
+  public String getWindowHandle() {
+    command();
+    return "fake";
+  }
+
+  public TargetLocator switchTo() {
+    return commandProxy(TargetLocator.class, true);
+  }
+
+  public Navigation navigate() {
+    return commandProxy(Navigation.class, true);
+  }
+
+  public Options manage() {
+    return commandProxy(Options.class, true);
+  }
+
+  public Object executeScript(String script, Object... args) {
+    command();
+    return scriptHandler == null ? null : scriptHandler.execute(this, script, args);
+  }
+
+  public Object executeAsyncScript(String script, Object... args) {
+    command();
+    return scriptHandler == null ? null : scriptHandler.execute(this, script, args);
+  }
+
+  public Keyboard getKeyboard() {
+    return keyboard;
+  }
+
+  public Mouse getMouse() {
+    return mouse;
+  }
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils.bench;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.internal.Coordinates;
+import org.openqa.selenium.internal.Locatable;
+
+/**
+ * An element of a {@link FakeWebDriver}. Its state is set directly by the
+ * benchmark; every WebElement call is counted as a command on the owning
+ * driver.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public class FakeWebElement implements WebElement, Locatable {
+
+  private final FakeWebDriver driver;
+  private final String tagName;
+  private final Map<String, String> attributes = new HashMap<String, String>();
+  private final Map<String, List<FakeWebElement>> children =
+      new HashMap<String, List<FakeWebElement>>();
+  private final Coordinates coordinates;
+
+  private String text = "";
+  private boolean displayed = true;
+  private boolean enabled = true;
+  private boolean selected;
+  private boolean stale;
+  private int missingLookups;
+
+  FakeWebElement(FakeWebDriver driver, String tagName) {
+    this.driver = driver;
+    this.tagName = tagName;
+    this.coordinates = driver.commandProxy(Coordinates.class, false);
+  }
+
+  /**
+   * Makes the given element reachable from this one using the locator.
+   */
+  public FakeWebElement add(By by, FakeWebElement child) {
+    FakeWebDriver.register(children, by, child);
+    return child;
+  }
+
+  public FakeWebElement withText(String text) {
+    this.text = text;
+    return this;
+  }
+
+  public FakeWebElement withAttribute(String name, String value) {
+    attributes.put(name, value);
+    return this;
+  }
+
+  public FakeWebElement withDisplayed(boolean displayed) {
+    this.displayed = displayed;
+    return this;
+  }
+
+  public FakeWebElement withEnabled(boolean enabled) {
+    this.enabled = enabled;
+    return this;
+  }
+
+  public FakeWebElement withSelected(boolean selected) {
+    this.selected = selected;
+    return this;
+  }
+
+  public FakeWebElement withStale(boolean stale) {
+    this.stale = stale;
+    return this;
+  }
+
+  /**
+   * Hides the element from the next {@code lookups} locator lookups, so waits
+   * have to poll for it.
+   */
+  public FakeWebElement withMissingLookups(int lookups) {
+    this.missingLookups = lookups;
+    return this;
+  }
+
+  boolean lookedUp() {
+    if (missingLookups > 0) {
+      missingLookups--;
+      return false;
+    }
+    return true;
+  }
+
+  private void command() {
+    driver.command();
+    if (stale) {
+      throw new StaleElementReferenceException("Element is no longer attached to the DOM");
+    }
+  }
+
+  public void click() {
+    command();
+    if ("option".equals(tagName)) {
+      selected = true;
+    }
+  }
+
+  public void submit() {
+    command();
+  }
+
+  /**
+   * Replaces rather than appends the value so repeated benchmark calls do not
+   * grow it without bound.
+   */
+  public void sendKeys(CharSequence... keysToSend) {
+    command();
+    StringBuilder value = new StringBuilder();
+    for (CharSequence keys : keysToSend) {
+      value.append(keys);
+    }
+    attributes.put("value", value.toString());
+  }
+
+  public void clear() {
+    command();
+    attributes.put("value", "");
+  }
+
+  public String getTagName() {
+    command();
+    return tagName;
+  }
+
+  public String getAttribute(String name) {
+    command();
+    return attributes.get(name);
+  }
+
+  public boolean isSelected() {
+    command();
+    return selected;
+  }
+
+  public boolean isEnabled() {
+    command();
+    return enabled;
+  }
+
+  public String getText() {
+    command();
+    return text;
+  }
+
+  public List<WebElement> findElements(By by) {
+    command();
+    return FakeWebDriver.lookup(children, by);
+  }
+
+  public WebElement findElement(By by) {
+    command();
+    return FakeWebDriver.lookupFirst(children, by);
+  }
+
+  public boolean isDisplayed() {
+    command();
+    return displayed;
+  }
+
+  public Point getLocation() {
+    command();
+    return new Point(0, 0);
+  }
+
+  public Dimension getSize() {
+    command();
+    return new Dimension(10, 10);
+  }
+
+  public String getCssValue(String propertyName) {
+    command();
+    return "";
+  }
+
+  public <X> X getScreenshotAs(OutputType<X> target) {
+    throw new UnsupportedOperationException("The fake driver does not render");
+  }
+
+  public Coordinates getCoordinates() {
+    return coordinates;
+  }
+}
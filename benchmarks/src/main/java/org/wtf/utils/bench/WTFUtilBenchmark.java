@@ -0,0 +1,437 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.wtf.utils.WTFConfig;
+import org.wtf.utils.WTFUtil;
+
+import static org.wtf.utils.bench.FakePage.*;
+
+/**
+ * Measures the per-call cost of every four-overload WTFUtil method against
+ * {@link FakePage}. The {@code overload} parameter selects which of the four
+ * variants runs, so each method is reported once per overload.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WTFUtilBenchmark {
+
+  /**
+   * The four method patterns every util method supports.
+   */
+  public enum Overload {
+    BY, WAIT_BY, PARENT_BY, WAIT_PARENT_BY
+  }
+
+  @Param({"BY", "WAIT_BY", "PARENT_BY", "WAIT_PARENT_BY"})
+  public Overload overload;
+
+  @Param({"0"})
+  public long latencyNanos;
+
+  private FakeWebDriver driver;
+  private WebDriverWait wait;
+  private WebElement parent;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    driver = FakePage.create(latencyNanos);
+    wait = new WebDriverWait(driver, WTFConfig.DEFAULT_TIMEOUT_IN_SECONDS);
+    parent = driver.findElement(PARENT);
+    driver.resetCommandCount();
+  }
+
+  @Benchmark
+  public void click(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    switch (overload) {
+      case BY:
+        WTFUtil.click(driver, BUTTON);
+        break;
+      case WAIT_BY:
+        WTFUtil.click(driver, wait, BUTTON);
+        break;
+      case PARENT_BY:
+        WTFUtil.click(driver, parent, BUTTON);
+        break;
+      default:
+        WTFUtil.click(driver, wait, parent, BUTTON);
+    }
+    counters.record(driver, before);
+  }
+
+  @Benchmark
+  public Object present(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    Object result;
+    switch (overload) {
+      case BY:
+        result = WTFUtil.present(driver, BUTTON);
+        break;
+      case WAIT_BY:
+        result = WTFUtil.present(driver, wait, BUTTON);
+        break;
+      case PARENT_BY:
+        result = WTFUtil.present(driver, parent, BUTTON);
+        break;
+      default:
+        result = WTFUtil.present(driver, wait, parent, BUTTON);
+    }
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public Object visible(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    Object result;
+    switch (overload) {
+      case BY:
+        result = WTFUtil.visible(driver, BUTTON);
+        break;
+      case WAIT_BY:
+        result = WTFUtil.visible(driver, wait, BUTTON);
+        break;
+      case PARENT_BY:
+        result = WTFUtil.visible(driver, parent, BUTTON);
+        break;
+      default:
+        result = WTFUtil.visible(driver, wait, parent, BUTTON);
+    }
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public Object invisible(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    Object result;
+    switch (overload) {
+      case BY:
+        result = WTFUtil.invisible(driver, INVISIBLE_BUTTON);
+        break;
+      case WAIT_BY:
+        result = WTFUtil.invisible(driver, wait, INVISIBLE_BUTTON);
+        break;
+      case PARENT_BY:
+        result = WTFUtil.invisible(driver, parent, INVISIBLE_BUTTON);
+        break;
+      default:
+        result = WTFUtil.invisible(driver, wait, parent, INVISIBLE_BUTTON);
+    }
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public Object findElement(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    Object result;
+    switch (overload) {
+      case BY:
+        result = WTFUtil.findElement(driver, BUTTON);
+        break;
+      case WAIT_BY:
+        result = WTFUtil.findElement(driver, wait, BUTTON);
+        break;
+      case PARENT_BY:
+        result = WTFUtil.findElement(driver, parent, BUTTON);
+        break;
+      default:
+        result = WTFUtil.findElement(driver, wait, parent, BUTTON);
+    }
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public Object findElements(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    Object result;
+    switch (overload) {
+      case BY:
+        result = WTFUtil.findElements(driver, BUTTON);
+        break;
+      case WAIT_BY:
+        result = WTFUtil.findElements(driver, wait, BUTTON);
+        break;
+      case PARENT_BY:
+        result = WTFUtil.findElements(driver, parent, BUTTON);
+        break;
+      default:
+        result = WTFUtil.findElements(driver, wait, parent, BUTTON);
+    }
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public Object selected(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    Object result;
+    switch (overload) {
+      case BY:
+        result = WTFUtil.selected(driver, CHECKBOX_SELECTED);
+        break;
+      case WAIT_BY:
+        result = WTFUtil.selected(driver, wait, CHECKBOX_SELECTED);
+        break;
+      case PARENT_BY:
+        result = WTFUtil.selected(driver, parent, CHECKBOX_SELECTED);
+        break;
+      default:
+        result = WTFUtil.selected(driver, wait, parent, CHECKBOX_SELECTED);
+    }
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public Object notSelected(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    Object result;
+    switch (overload) {
+      case BY:
+        result = WTFUtil.notSelected(driver, CHECKBOX_NOT_SELECTED);
+        break;
+      case WAIT_BY:
+        result = WTFUtil.notSelected(driver, wait, CHECKBOX_NOT_SELECTED);
+        break;
+      case PARENT_BY:
+        result = WTFUtil.notSelected(driver, parent, CHECKBOX_NOT_SELECTED);
+        break;
+      default:
+        result = WTFUtil.notSelected(driver, wait, parent, CHECKBOX_NOT_SELECTED);
+    }
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public void type(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    switch (overload) {
+      case BY:
+        WTFUtil.type(driver, TEXTBOX, TEXT);
+        break;
+      case WAIT_BY:
+        WTFUtil.type(driver, wait, TEXTBOX, TEXT);
+        break;
+      case PARENT_BY:
+        WTFUtil.type(driver, parent, TEXTBOX, TEXT);
+        break;
+      default:
+        WTFUtil.type(driver, wait, parent, TEXTBOX, TEXT);
+    }
+    counters.record(driver, before);
+  }
+
+  @Benchmark
+  public void clear(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    switch (overload) {
+      case BY:
+        WTFUtil.clear(driver, TEXTBOX);
+        break;
+      case WAIT_BY:
+        WTFUtil.clear(driver, wait, TEXTBOX);
+        break;
+      case PARENT_BY:
+        WTFUtil.clear(driver, parent, TEXTBOX);
+        break;
+      default:
+        WTFUtil.clear(driver, wait, parent, TEXTBOX);
+    }
+    counters.record(driver, before);
+  }
+
+  @Benchmark
+  public Object textPresent(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    Object result;
+    switch (overload) {
+      case BY:
+        result = WTFUtil.textPresent(driver, DIV_WITH_TEXT, TEXT);
+        break;
+      case WAIT_BY:
+        result = WTFUtil.textPresent(driver, wait, DIV_WITH_TEXT, TEXT);
+        break;
+      case PARENT_BY:
+        result = WTFUtil.textPresent(driver, parent, DIV_WITH_TEXT, TEXT);
+        break;
+      default:
+        result = WTFUtil.textPresent(driver, wait, parent, DIV_WITH_TEXT, TEXT);
+    }
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public Object textNotPresent(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    Object result;
+    switch (overload) {
+      case BY:
+        result = WTFUtil.textNotPresent(driver, DIV_WITH_TEXT, TEXT + "123");
+        break;
+      case WAIT_BY:
+        result = WTFUtil.textNotPresent(driver, wait, DIV_WITH_TEXT, TEXT + "123");
+        break;
+      case PARENT_BY:
+        result = WTFUtil.textNotPresent(driver, parent, DIV_WITH_TEXT, TEXT + "123");
+        break;
+      default:
+        result = WTFUtil.textNotPresent(driver, wait, parent, DIV_WITH_TEXT, TEXT + "123");
+    }
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public Object attributeValuePresent(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    Object result;
+    switch (overload) {
+      case BY:
+        result = WTFUtil.attributeValuePresent(driver, DIV_WITH_ATTRIBUTE, ATTRIBUTE_NAME, ATTRIBUTE_VALUE);
+        break;
+      case WAIT_BY:
+        result = WTFUtil.attributeValuePresent(driver, wait, DIV_WITH_ATTRIBUTE, ATTRIBUTE_NAME, ATTRIBUTE_VALUE);
+        break;
+      case PARENT_BY:
+        result = WTFUtil.attributeValuePresent(driver, parent, DIV_WITH_ATTRIBUTE, ATTRIBUTE_NAME, ATTRIBUTE_VALUE);
+        break;
+      default:
+        result = WTFUtil.attributeValuePresent(driver, wait, parent, DIV_WITH_ATTRIBUTE, ATTRIBUTE_NAME, ATTRIBUTE_VALUE);
+    }
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public Object getAttributeValue(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    Object result;
+    switch (overload) {
+      case BY:
+        result = WTFUtil.getAttributeValue(driver, DIV_WITH_ATTRIBUTE, ATTRIBUTE_NAME);
+        break;
+      case WAIT_BY:
+        result = WTFUtil.getAttributeValue(driver, wait, DIV_WITH_ATTRIBUTE, ATTRIBUTE_NAME);
+        break;
+      case PARENT_BY:
+        result = WTFUtil.getAttributeValue(driver, parent, DIV_WITH_ATTRIBUTE, ATTRIBUTE_NAME);
+        break;
+      default:
+        result = WTFUtil.getAttributeValue(driver, wait, parent, DIV_WITH_ATTRIBUTE, ATTRIBUTE_NAME);
+    }
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public Object getText(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    Object result;
+    switch (overload) {
+      case BY:
+        result = WTFUtil.getText(driver, DIV_WITH_TEXT);
+        break;
+      case WAIT_BY:
+        result = WTFUtil.getText(driver, wait, DIV_WITH_TEXT);
+        break;
+      case PARENT_BY:
+        result = WTFUtil.getText(driver, parent, DIV_WITH_TEXT);
+        break;
+      default:
+        result = WTFUtil.getText(driver, wait, parent, DIV_WITH_TEXT);
+    }
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public Object getValue(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    Object result;
+    switch (overload) {
+      case BY:
+        result = WTFUtil.getValue(driver, TEXTBOX);
+        break;
+      case WAIT_BY:
+        result = WTFUtil.getValue(driver, wait, TEXTBOX);
+        break;
+      case PARENT_BY:
+        result = WTFUtil.getValue(driver, parent, TEXTBOX);
+        break;
+      default:
+        result = WTFUtil.getValue(driver, wait, parent, TEXTBOX);
+    }
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public Object getSelectElement(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    Object result;
+    switch (overload) {
+      case BY:
+        result = WTFUtil.getSelectElement(driver, SELECT);
+        break;
+      case WAIT_BY:
+        result = WTFUtil.getSelectElement(driver, wait, SELECT);
+        break;
+      case PARENT_BY:
+        result = WTFUtil.getSelectElement(driver, parent, SELECT);
+        break;
+      default:
+        result = WTFUtil.getSelectElement(driver, wait, parent, SELECT);
+    }
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public void hover(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    switch (overload) {
+      case BY:
+        WTFUtil.hover(driver, HOVER_BUTTON);
+        break;
+      case WAIT_BY:
+        WTFUtil.hover(driver, wait, HOVER_BUTTON);
+        break;
+      case PARENT_BY:
+        WTFUtil.hover(driver, parent, HOVER_BUTTON);
+        break;
+      default:
+        WTFUtil.hover(driver, wait, parent, HOVER_BUTTON);
+    }
+    counters.record(driver, before);
+  }
+}
@@ -0,0 +1,36 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar. Accepts the usual JMH command line and
+ * always attaches the GC profiler, so every result carries ns/op, the
+ * allocated bytes per op ({@code gc.alloc.rate.norm}) and the
+ * commands/calls counters.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public class WTFUtilBenchmarks {
+
+  private WTFUtilBenchmarks() {
+    // Utility class
+  }
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    OptionsBuilder options = new OptionsBuilder();
+    options.parent(commandLine);
+    if (commandLine.getIncludes().isEmpty()) {
+      options.include(WTFUtilBenchmarks.class.getPackage().getName() + ".*");
+    }
+    options.addProfiler(GCProfiler.class);
+    new Runner(options.build()).run();
+  }
+}
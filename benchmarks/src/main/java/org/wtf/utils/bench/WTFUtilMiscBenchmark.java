@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.wtf.utils.WTFConfig;
+import org.wtf.utils.WTFUtil;
+
+import static org.wtf.utils.bench.FakePage.*;
+
+/**
+ * Measures the WTFUtil methods outside the four-overload pattern: staleness,
+ * waits for many conditions, scrolling and drop down helpers.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WTFUtilMiscBenchmark {
+
+  @Param({"0"})
+  public long latencyNanos;
+
+  @Param({"100"})
+  public int pixelsToScroll;
+
+  @Param({"10"})
+  public int pixelsPerDrag;
+
+  private FakeWebDriver driver;
+  private WebDriverWait wait;
+  private WebElement staleElement;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    driver = FakePage.create(latencyNanos);
+    wait = new WebDriverWait(driver, WTFConfig.DEFAULT_TIMEOUT_IN_SECONDS);
+    staleElement = driver.newElement("div").withStale(true);
+  }
+
+  @Benchmark
+  public Object notPresent(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    Object result = WTFUtil.notPresent(driver, staleElement);
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public Object notPresentWithWait(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    Object result = WTFUtil.notPresent(driver, wait, staleElement);
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public int anyVisible(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    int result = WTFUtil.anyVisible(driver, wait, INVISIBLE_BUTTON, BUTTON);
+    counters.record(driver, before);
+    return result;
+  }
+
+  @Benchmark
+  public void scrollNonBrowserScrollersVertically(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    WTFUtil.scrollNonBrowserScrollersVertically(driver, SCROLLBAR, pixelsToScroll,
+        pixelsPerDrag, false);
+    counters.record(driver, before);
+  }
+
+  @Benchmark
+  public void scrollNonBrowserScrollersHorizontally(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    WTFUtil.scrollNonBrowserScrollersHorizontally(driver, SCROLLBAR, pixelsToScroll,
+        pixelsPerDrag, false);
+    counters.record(driver, before);
+  }
+
+  @Benchmark
+  public void scrollToBottom(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    WTFUtil.scrollToBottom(driver);
+    counters.record(driver, before);
+  }
+
+  @Benchmark
+  public void scrollTop(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    WTFUtil.scrollTop(driver);
+    counters.record(driver, before);
+  }
+
+  @Benchmark
+  public int getRandomIndexForDD() {
+    return WTFUtil.getRandomIndexForDD(1, 4);
+  }
+
+  @Benchmark
+  public void selectOptionFromDropDown(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    WTFUtil.selectOptionFromDropDown(driver, SELECT);
+    counters.record(driver, before);
+  }
+
+  @Benchmark
+  public void selectOptionFromDropDownByText(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    WTFUtil.selectOptionFromDropDown(driver, SELECT, "Audi");
+    counters.record(driver, before);
+  }
+
+  @Benchmark
+  public void selectOptionFromDropDownByIndex(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    WTFUtil.selectOptionFromDropDown(driver, SELECT, "Audi", 3);
+    counters.record(driver, before);
+  }
+
+  @Benchmark
+  public void selectOptionRandomlyFromMenuList(CommandCounters counters) {
+    long before = driver.getCommandCount();
+    WTFUtil.selectOptionRandomlyFromMenuList(driver, MENU_ITEM);
+    counters.record(driver, before);
+  }
+}
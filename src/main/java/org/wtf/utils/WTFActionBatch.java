@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.Actions;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.wtf.utils.WTFMetrics.Operation;
+
+/**
+ * WTF action batch. Records a sequence of interactions and performs them as
+ * few action chains as the page allows:
+ *
+ * <pre>
+ * new WTFActionBatch(driver).hover(By.id("menu")).hover(By.id("submenu"))
+ *     .click(By.id("item")).type(By.id("name"), "text").perform();
+ * </pre>
+ *
+ * The targets already visible are resolved together by one script and
+ * their steps sent as one chain. A target that is not there yet, like a
+ * submenu shown by the hover before it, is waited for as WTFUtil would, and
+ * the steps up to it are performed first.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public final class WTFActionBatch {
+
+  private enum Kind {
+    HOVER, CLICK, DOUBLE_CLICK, TYPE
+  }
+
+  /**
+   * Finds the elements of the locators as long as they are shown, and
+   * enabled when the step clicks them.
+   */
+  private static final String RESOLVE_SCRIPT = WTFScripts.script(""
+      + "var locators = arguments[0], found = [];\n"
+      + "for (var i = 0; i < locators.length; i++) {\n"
+      + "  var e = wtf.first(null, locators[i][0], locators[i][1]);\n"
+      + "  if (!e || !wtf.shown(e) || (locators[i][2] && !wtf.enabled(e))) { break; }\n"
+      + "  found.push(e);\n"
+      + "}\n"
+      + "return found;");
+
+  private final WebDriver driver;
+  private final WebDriverWait wait;
+  private final List<Step> steps = new ArrayList<Step>();
+
+  /**
+   * @param driver
+   *          the WebDriver
+   */
+  public WTFActionBatch(WebDriver driver) {
+    this(driver, null);
+  }
+
+  /**
+   * @param driver
+   *          the WebDriver
+   * @param wait
+   *          the wait for the targets that are not there yet, or null for
+   *          the session wait
+   */
+  public WTFActionBatch(WebDriver driver, WebDriverWait wait) {
+    this.driver = driver;
+    this.wait = wait;
+  }
+
+  public WTFActionBatch hover(By by) {
+    return add(Kind.HOVER, by, null);
+  }
+
+  public WTFActionBatch click(By by) {
+    return add(Kind.CLICK, by, null);
+  }
+
+  public WTFActionBatch doubleClick(By by) {
+    return add(Kind.DOUBLE_CLICK, by, null);
+  }
+
+  /**
+   * Clicks the element and types the text into it.
+   */
+  public WTFActionBatch type(By by, String text) {
+    return add(Kind.TYPE, by, text);
+  }
+
+  private WTFActionBatch add(Kind kind, By by, String text) {
+    steps.add(new Step(kind, by, text));
+    return this;
+  }
+
+  /**
+   * Performs the recorded steps in order. The batch can be performed again.
+   */
+  public void perform() {
+    WTFMetrics.enter(Operation.ACTION_BATCH);
+    try {
+      int next = 0;
+      while (next < steps.size()) {
+        List<WebElement> found = resolve(next);
+        if (found.isEmpty()) {
+          Step step = steps.get(next);
+          found = Collections.singletonList(getWait().until(condition(step)));
+        }
+        Actions chain = new Actions(driver);
+        for (WebElement element : found) {
+          steps.get(next++).addTo(chain, element);
+        }
+        chain.perform();
+      }
+    } finally {
+      WTFMetrics.exit();
+    }
+  }
+
+  /**
+   * @return the elements of the steps from the given one on that are ready
+   *         now, up to the first that is not
+   */
+  private List<WebElement> resolve(int from) {
+    List<List<Object>> locators = new ArrayList<List<Object>>();
+    for (Step step : steps.subList(from, steps.size())) {
+      if (!WTFScripts.supports(driver, step.by)) {
+        break;
+      }
+      List<Object> locator = new ArrayList<Object>(WTFScripts.locator(step.by));
+      locator.add(step.kind != Kind.HOVER);
+      locators.add(locator);
+    }
+    if (locators.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<WebElement> found = new ArrayList<WebElement>();
+    for (Object element : (List<?>) WTFScripts.execute(driver, RESOLVE_SCRIPT, locators)) {
+      found.add((WebElement) element);
+    }
+    return found;
+  }
+
+  private ExpectedCondition<WebElement> condition(Step step) {
+    return step.kind == Kind.HOVER ? WTFUtil.visibilityCondition(driver, null, step.by)
+        : WTFUtil.clickableCondition(driver, null, step.by);
+  }
+
+  private WebDriverWait getWait() {
+    return wait != null ? wait : WTFSession.of(driver).getWait(driver);
+  }
+
+  private static final class Step {
+
+    private final Kind kind;
+    private final By by;
+    private final String text;
+
+    Step(Kind kind, By by, String text) {
+      this.kind = kind;
+      this.by = by;
+      this.text = text;
+    }
+
+    void addTo(Actions chain, WebElement element) {
+      switch (kind) {
+        case HOVER:
+          chain.moveToElement(element);
+          break;
+        case CLICK:
+          chain.click(element);
+          break;
+        case DOUBLE_CLICK:
+          chain.doubleClick(element);
+          break;
+        default:
+          chain.click(element).sendKeys(text);
+      }
+    }
+  }
+}
@@ -0,0 +1,431 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * WTF async. The waits and actions of WTFUtil returning a future instead of
+ * blocking the caller:
+ *
+ * <pre>
+ * ListenableFuture&lt;Void&gt; clicked = WTFAsync.shared().click(driver, By.id("save"));
+ * ...
+ * clicked.get();
+ * </pre>
+ *
+ * Every poll runs as a task of a scheduler, so no thread is held between
+ * polls and a few threads drive many sessions. Cancelling a future stops its
+ * polling and the action after it. Time out and polling come from the
+ * session settings, or from the given {@link WTFWait}; the wait ends with a
+ * {@link TimeoutException} in the future. As in WTFUtil, an action finding
+ * its element stale drops the element cache, polls the condition again and
+ * repeats the action, up to {@link WTFConfig#getStaleRetries()} times.
+ * <p/>
+ * The operations of one session should be chained, not run together:
+ * WebDriver answers the commands of a session one at a time. Conditions are
+ * polled, never awaited in the page, since that would hold a thread. The
+ * implicit wait of the session is set to 0 until the future is done, as in
+ * {@link WTFWait}, so that a failed poll never holds a thread either. Async
+ * operations are not recorded by {@link WTFMetrics}, which follows the
+ * operations of a thread.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public final class WTFAsync {
+
+  private static final int SHARED_THREADS = Math.max(4,
+      Runtime.getRuntime().availableProcessors() * 4);
+
+  private static final Function<Object, Object> IDENTITY = new Function<Object, Object>() {
+    public Object apply(Object value) {
+      return value;
+    }
+  };
+
+  private static WTFAsync shared;
+
+  private final ScheduledExecutorService scheduler;
+
+  /**
+   * @param scheduler
+   *          runs the polls and actions, e.g. a pool sized to the number of
+   *          commands in flight
+   */
+  public WTFAsync(ScheduledExecutorService scheduler) {
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * @return an instance running on a pool of daemon threads, shared by the
+   *         whole JVM
+   */
+  public static synchronized WTFAsync shared() {
+    if (shared == null) {
+      shared = new WTFAsync(Executors.newScheduledThreadPool(SHARED_THREADS,
+          new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable) {
+              Thread thread = new Thread(runnable, "wtf-async-" + count.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            }
+          }));
+    }
+    return shared;
+  }
+
+  /**
+   * Polls the condition until it returns neither null nor false.
+   *
+   * @param driver
+   *          the WebDriver
+   * @param condition
+   *          the condition, e.g. from {@link WTFExpectedConditions}
+   * @return the value of the condition
+   */
+  public <V> ListenableFuture<V> until(WebDriver driver,
+      Function<? super WebDriver, V> condition) {
+    return until(driver, WTFSession.of(driver).getWait(driver), condition);
+  }
+
+  /**
+   * Polls the condition until it returns neither null nor false, with the
+   * time out, polling and tuner of the given wait.
+   *
+   * @param driver
+   *          the WebDriver
+   * @param wait
+   *          the wait to take the time out and polling from
+   * @param condition
+   *          the condition, e.g. from {@link WTFExpectedConditions}
+   * @return the value of the condition
+   */
+  public <V> ListenableFuture<V> until(WebDriver driver, WTFWait wait,
+      Function<? super WebDriver, V> condition) {
+    return start(driver, wait, condition, null);
+  }
+
+  /**
+   * @return the WebElement once it is located
+   */
+  public ListenableFuture<WebElement> findElement(WebDriver driver, By by) {
+    return findElement(driver, null, by);
+  }
+
+  /**
+   * @param parent
+   *          the sub DOM to look, or null for the whole page
+   * @return the WebElement once it is located
+   */
+  public ListenableFuture<WebElement> findElement(WebDriver driver, WebElement parent, By by) {
+    return until(driver, WTFUtil.presenceCondition(driver, parent, by));
+  }
+
+  /**
+   * @return the WebElements once at least one is located
+   */
+  public ListenableFuture<List<WebElement>> findElements(WebDriver driver, By by) {
+    return until(driver, WTFExpectedConditions.presenceOfAllElementsLocatedBy_(null, by));
+  }
+
+  /**
+   * @return true once the element is visible
+   */
+  public ListenableFuture<Boolean> visible(WebDriver driver, By by) {
+    return visible(driver, null, by);
+  }
+
+  /**
+   * @param parent
+   *          the sub DOM to look, or null for the whole page
+   * @return true once the element is visible
+   */
+  public ListenableFuture<Boolean> visible(WebDriver driver, WebElement parent, By by) {
+    return start(driver, WTFSession.of(driver).getWait(driver),
+        WTFUtil.visibilityCondition(driver, parent, by), new Function<WebElement, Boolean>() {
+          public Boolean apply(WebElement element) {
+            return true;
+          }
+        });
+  }
+
+  /**
+   * @return true once the element is invisible or gone
+   */
+  public ListenableFuture<Boolean> invisible(WebDriver driver, By by) {
+    return invisible(driver, null, by);
+  }
+
+  /**
+   * @param parent
+   *          the sub DOM to look, or null for the whole page
+   * @return true once the element is invisible or gone
+   */
+  public ListenableFuture<Boolean> invisible(WebDriver driver, WebElement parent, By by) {
+    return until(driver, WTFUtil.invisibilityCondition(driver, parent, by));
+  }
+
+  /**
+   * Clicks the element once it can be clicked.
+   */
+  public ListenableFuture<Void> click(WebDriver driver, By by) {
+    return click(driver, null, by);
+  }
+
+  /**
+   * Clicks the element inside a sub DOM once it can be clicked.
+   *
+   * @param parent
+   *          the sub DOM to look, or null for the whole page
+   */
+  public ListenableFuture<Void> click(final WebDriver driver, WebElement parent, By by) {
+    final boolean byScript =
+        WTFConfig.of(driver).getInteractionMode() == WTFConfig.InteractionMode.SCRIPT;
+    return start(driver, WTFSession.of(driver).getWait(driver),
+        WTFUtil.clickableCondition(driver, parent, by), new Function<WebElement, Void>() {
+          public Void apply(WebElement element) {
+            if (byScript) {
+              ((JavascriptExecutor) driver).executeScript("arguments[0].click();", element);
+            } else {
+              element.click();
+            }
+            return null;
+          }
+        });
+  }
+
+  /**
+   * Types the text on the element once it is visible.
+   */
+  public ListenableFuture<Void> type(WebDriver driver, By by, String text) {
+    return type(driver, null, by, text);
+  }
+
+  /**
+   * Types the text on an element inside a sub DOM once it is visible.
+   *
+   * @param parent
+   *          the sub DOM to look, or null for the whole page
+   */
+  public ListenableFuture<Void> type(WebDriver driver, WebElement parent, By by,
+      final String text) {
+    return start(driver, WTFSession.of(driver).getWait(driver),
+        WTFUtil.visibilityCondition(driver, parent, by), new Function<WebElement, Void>() {
+          public Void apply(WebElement element) {
+            element.sendKeys(text);
+            return null;
+          }
+        });
+  }
+
+  /**
+   * Clears the text of the element once it is visible.
+   */
+  public ListenableFuture<Void> clear(WebDriver driver, By by) {
+    return clear(driver, null, by);
+  }
+
+  /**
+   * Clears the text of an element inside a sub DOM once it is visible.
+   *
+   * @param parent
+   *          the sub DOM to look, or null for the whole page
+   */
+  public ListenableFuture<Void> clear(WebDriver driver, WebElement parent, By by) {
+    return start(driver, WTFSession.of(driver).getWait(driver),
+        WTFUtil.visibilityCondition(driver, parent, by), new Function<WebElement, Void>() {
+          public Void apply(WebElement element) {
+            element.clear();
+            return null;
+          }
+        });
+  }
+
+  /**
+   * @return the text of the element once it is located
+   */
+  public ListenableFuture<String> getText(WebDriver driver, By by) {
+    return getText(driver, null, by);
+  }
+
+  /**
+   * @param parent
+   *          the sub DOM to look, or null for the whole page
+   * @return the text of the element once it is located
+   */
+  public ListenableFuture<String> getText(WebDriver driver, WebElement parent, By by) {
+    return start(driver, WTFSession.of(driver).getWait(driver),
+        WTFUtil.presenceCondition(driver, parent, by), new Function<WebElement, String>() {
+          public String apply(WebElement element) {
+            return element.getText();
+          }
+        });
+  }
+
+  /**
+   * @param action
+   *          applied to the value of the condition, or null to return the
+   *          value itself
+   */
+  @SuppressWarnings("unchecked")
+  private <V, R> ListenableFuture<R> start(WebDriver driver, WTFWait wait,
+      Function<? super WebDriver, V> condition, Function<? super V, R> action) {
+    Poll<V, R> poll = new Poll<V, R>(driver, wait, condition,
+        action != null ? action : (Function<? super V, R>) IDENTITY);
+    scheduler.execute(poll);
+    return poll.future;
+  }
+
+  /**
+   * One wait, polling as a task that schedules itself again until the
+   * condition is true, the time is over or the future is cancelled.
+   */
+  private final class Poll<V, R> implements Runnable {
+
+    private final SettableFuture<R> future = SettableFuture.create();
+    private final WebDriver driver;
+    private final Function<? super WebDriver, V> condition;
+    private final Function<? super V, R> action;
+    private final WTFPolling polling;
+    private final WTFTuner tuner;
+    private final String name;
+    private final long timeoutInMillis;
+    private final WTFWait wait;
+    private final long start = System.nanoTime();
+    private final AtomicBoolean suppressing = new AtomicBoolean();
+    private WTFSession session;
+    private int staleRetries;
+    private int poll;
+    private RuntimeException lastException;
+
+    Poll(WebDriver driver, WTFWait wait, Function<? super WebDriver, V> condition,
+        Function<? super V, R> action) {
+      this.driver = driver;
+      this.condition = condition;
+      this.action = action;
+      this.polling = wait.getPolling();
+      this.tuner = wait.getTuner();
+      this.name = tuner != null ? condition.toString() : null;
+      this.wait = wait;
+      this.staleRetries = WTFConfig.of(driver).getStaleRetries();
+      long timeout = wait.getTimeoutInMillis();
+      this.timeoutInMillis = tuner != null ? tuner.timeoutInMillis(name, timeout) : timeout;
+    }
+
+    public void run() {
+      if (future.isDone()) {
+        return;
+      }
+      try {
+        if (session == null) {
+          suppressImplicitWait();
+        }
+        V value = null;
+        try {
+          value = condition.apply(driver);
+        } catch (RuntimeException e) {
+          if (!wait.isIgnored(e)) {
+            throw e;
+          }
+          lastException = e;
+        }
+        if (value != null && !Boolean.FALSE.equals(value)) {
+          if (tuner != null) {
+            tuner.record(name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+          }
+          if (!future.isCancelled()) {
+            R result;
+            try {
+              result = action.apply(value);
+            } catch (StaleElementReferenceException e) {
+              if (staleRetries-- <= 0) {
+                throw e;
+              }
+              WTFElementCache cache = session.getElementCache();
+              if (cache != null) {
+                cache.clear();
+              }
+              WTFMetrics.staleRetry();
+              scheduler.execute(this);
+              return;
+            }
+            restoreImplicitWait();
+            future.set(result);
+          }
+          return;
+        }
+        poll++;
+        long elapsedInNanos = System.nanoTime() - start;
+        long remainingInNanos = TimeUnit.MILLISECONDS.toNanos(timeoutInMillis) - elapsedInNanos;
+        if (remainingInNanos <= 0) {
+          if (tuner != null) {
+            tuner.record(name, TimeUnit.NANOSECONDS.toMillis(elapsedInNanos));
+          }
+          restoreImplicitWait();
+          future.setException(new TimeoutException(wait.timeoutMessage(timeoutInMillis,
+              condition), lastException));
+          return;
+        }
+        long delayInMillis = polling.delayInMillis(poll);
+        if (poll == 1 && tuner != null) {
+          delayInMillis = tuner.firstDelayInMillis(name, delayInMillis);
+        }
+        scheduler.schedule(this, Math.min(TimeUnit.MILLISECONDS.toNanos(delayInMillis),
+            remainingInNanos), TimeUnit.NANOSECONDS);
+      } catch (Throwable e) {
+        try {
+          restoreImplicitWait();
+        } finally {
+          future.setException(e);
+        }
+      }
+    }
+
+    /**
+     * Suspends the implicit wait of the session until the future is done,
+     * including when it is cancelled.
+     */
+    private void suppressImplicitWait() {
+      session = WTFSession.of(driver);
+      session.suppressImplicitWait(driver);
+      suppressing.set(true);
+      future.addListener(new Runnable() {
+        public void run() {
+          restoreImplicitWait();
+        }
+      }, MoreExecutors.sameThreadExecutor());
+    }
+
+    /**
+     * Restores the implicit wait once, before the future is done so that its
+     * callers find the session as it was.
+     */
+    private void restoreImplicitWait() {
+      if (suppressing.compareAndSet(true, false)) {
+        session.restoreImplicitWait(driver);
+      }
+    }
+  }
+}
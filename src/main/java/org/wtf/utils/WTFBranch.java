@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import org.openqa.selenium.support.ui.ExpectedCondition;
+
+/**
+ * The condition that came true first among the conditions given to
+ * {@link WTFExpectedConditions#anyOf(ExpectedCondition...)}.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public final class WTFBranch {
+
+  private final int index;
+  private final Object value;
+  private final ExpectedCondition<?> condition;
+
+  WTFBranch(int index, Object value, ExpectedCondition<?> condition) {
+    this.index = index;
+    this.value = value;
+    this.condition = condition;
+  }
+
+  /**
+   * @return the position of the condition among the given conditions
+   */
+  public int getIndex() {
+    return index;
+  }
+
+  /**
+   * @return the value of the condition, e.g. the WebElement found
+   */
+  public Object getValue() {
+    return value;
+  }
+
+  public ExpectedCondition<?> getCondition() {
+    return condition;
+  }
+
+  public String toString() {
+    return String.format("branch %d (%s): %s", index, condition, value);
+  }
+}
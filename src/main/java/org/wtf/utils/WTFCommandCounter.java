@@ -0,0 +1,331 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.WrapsDriver;
+import org.openqa.selenium.internal.WrapsElement;
+import org.wtf.utils.WTFMetrics.Operation;
+
+/**
+ * WTF command counter. A WebDriver decorator counting and timing every
+ * command sent to the browser, by the WTFUtil operation that sent it:
+ *
+ * <pre>
+ * WebDriver driver = WTFCommandCounter.wrap(new FirefoxDriver());
+ * WTFUtil.hover(driver, By.className("menu"));
+ * System.out.println(WTFCommandCounter.of(driver).report());
+ * </pre>
+ *
+ * The elements, lists of elements, options, navigation, target locator,
+ * mouse and keyboard handed out by the driver are decorated as well, and
+ * unwrapped again when passed back to the driver; the driver of a decorated
+ * element is the counting driver. Getting those objects is not a command;
+ * calling them is. Commands sent outside any WTFUtil operation are reported
+ * under {@value #OUTSIDE}. Operations are told apart through
+ * {@link WTFMetrics}, so it must be enabled.
+ * <p/>
+ * Commands of a wrapped driver are also counted by {@link WTFMetrics}.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public final class WTFCommandCounter {
+
+  public static final String OUTSIDE = "(outside WTFUtil)";
+
+  /**
+   * Objects reached from the driver without a command, by simple type name so
+   * that types missing from older Selenium versions do no harm.
+   */
+  private static final Set<String> LOCAL_TYPES = new HashSet<String>(Arrays.asList("Options",
+      "Navigation", "TargetLocator", "Timeouts", "Window", "ImeHandler", "Logs", "Mouse",
+      "Keyboard", "TouchScreen", "Coordinates"));
+
+  private final Map<String, Helper> helpers = new LinkedHashMap<String, Helper>();
+
+  private WebDriver driver;
+
+  private WTFCommandCounter() {
+    // Created through wrap(WebDriver)
+  }
+
+  /**
+   * @param driver
+   *          the WebDriver to count the commands of
+   * @return the counting driver, to use in place of the given one
+   */
+  public static WebDriver wrap(WebDriver driver) {
+    WTFCommandCounter counter = new WTFCommandCounter();
+    counter.driver = (WebDriver) counter.decorate(driver, WrapsDriver.class);
+    return counter.driver;
+  }
+
+  /**
+   * @param driver
+   *          a driver returned by {@link #wrap(WebDriver)}
+   * @return the counter of the driver
+   */
+  public static WTFCommandCounter of(WebDriver driver) {
+    Handler handler = handler(driver);
+    if (handler == null) {
+      throw new IllegalArgumentException("The driver is not wrapped by WTFCommandCounter: "
+          + driver);
+    }
+    return handler.counter();
+  }
+
+  /**
+   * @return true if the commands of the driver are counted by a decorator
+   */
+  static boolean isCounting(WebDriver driver) {
+    return handler(driver) != null;
+  }
+
+  private static Handler handler(Object object) {
+    if (object != null && Proxy.isProxyClass(object.getClass())) {
+      InvocationHandler handler = Proxy.getInvocationHandler(object);
+      if (handler instanceof Handler) {
+        return (Handler) handler;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Forgets the commands counted so far, e.g. before each test.
+   */
+  public synchronized void reset() {
+    helpers.clear();
+  }
+
+  /**
+   * @return the number of calls of the operation that sent commands
+   */
+  public synchronized long getCalls(Operation operation) {
+    Helper helper = helpers.get(operation.toString());
+    return helper != null ? helper.calls : 0;
+  }
+
+  /**
+   * @return the number of commands sent by the operation
+   */
+  public synchronized long getCommands(Operation operation) {
+    Helper helper = helpers.get(operation.toString());
+    return helper != null ? helper.commands : 0;
+  }
+
+  /**
+   * @param command
+   *          the WebDriver method, e.g. findElement
+   * @return the number of these commands sent by the operation
+   */
+  public synchronized long getCommands(Operation operation, String command) {
+    Helper helper = helpers.get(operation.toString());
+    Command counted = helper != null ? helper.byCommand.get(command) : null;
+    return counted != null ? counted.count : 0;
+  }
+
+  /**
+   * @return a table of the commands sent by each operation, with the round
+   *         trips per call
+   */
+  public synchronized String report() {
+    StringBuilder report = new StringBuilder(String.format("%-40s %8s %9s %9s %10s%n",
+        "operation / command", "calls", "commands", "per call", "ms"));
+    for (Map.Entry<String, Helper> entry : helpers.entrySet()) {
+      Helper helper = entry.getValue();
+      report.append(String.format("%-40s %8s %9d %9s %10.1f%n", entry.getKey(),
+          helper.calls > 0 ? String.valueOf(helper.calls) : "",
+          helper.commands, helper.calls > 0
+              ? String.format("%.1f", (double) helper.commands / helper.calls) : "",
+          helper.nanos / 1e6));
+      for (Map.Entry<String, Command> command : helper.byCommand.entrySet()) {
+        report.append(String.format("  %-38s %8s %9d %9s %10.1f%n", command.getKey(), "",
+            command.getValue().count, "", command.getValue().nanos / 1e6));
+      }
+    }
+    return report.toString();
+  }
+
+  private void record(String command, long nanos) {
+    Operation operation = WTFMetrics.current();
+    long call = WTFMetrics.currentCall();
+    WTFMetrics.command();
+    String name = operation != null ? operation.toString() : OUTSIDE;
+    synchronized (this) {
+      Helper helper = helpers.get(name);
+      if (helper == null) {
+        helper = new Helper();
+        helpers.put(name, helper);
+      }
+      helper.record(operation != null ? call : 0, command, nanos);
+    }
+  }
+
+  private Object decorate(Object target, Class<?> wrapper) {
+    Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>();
+    for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+      collectInterfaces(type, interfaces);
+    }
+    if (wrapper != null) {
+      interfaces.add(wrapper);
+    }
+    return Proxy.newProxyInstance(target.getClass().getClassLoader(),
+        interfaces.toArray(new Class<?>[interfaces.size()]), new Handler(target));
+  }
+
+  private static void collectInterfaces(Class<?> type, Set<Class<?>> interfaces) {
+    for (Class<?> implemented : type.getInterfaces()) {
+      if (Modifier.isPublic(implemented.getModifiers())) {
+        interfaces.add(implemented);
+      }
+      collectInterfaces(implemented, interfaces);
+    }
+  }
+
+  private Object decorateResult(Method method, Object result) {
+    if (result == null || handler(result) != null) {
+      return result;
+    }
+    if (result == unwrap(driver)) {
+      return driver;
+    }
+    if (result instanceof WebElement) {
+      return decorate(result, WrapsElement.class);
+    }
+    if (result instanceof List) {
+      List<Object> decorated = new ArrayList<Object>();
+      for (Object item : (List<?>) result) {
+        decorated.add(item instanceof WebElement ? decorate(item, WrapsElement.class) : item);
+      }
+      return decorated;
+    }
+    Class<?> type = method.getReturnType();
+    if (type.isInterface() && LOCAL_TYPES.contains(type.getSimpleName())
+        && !"Coordinates".equals(type.getSimpleName())) {
+      return decorate(result, null);
+    }
+    return result;
+  }
+
+  private static Object unwrap(Object object) {
+    Handler handler = handler(object);
+    if (handler != null) {
+      return handler.target;
+    }
+    if (object instanceof Object[]) {
+      Object[] array = (Object[]) object;
+      Object[] unwrapped = (Object[]) Array.newInstance(array.getClass().getComponentType(),
+          array.length);
+      for (int i = 0; i < array.length; i++) {
+        unwrapped[i] = unwrap(array[i]);
+      }
+      return unwrapped;
+    }
+    if (object instanceof List) {
+      List<Object> unwrapped = new ArrayList<Object>();
+      for (Object item : (List<?>) object) {
+        unwrapped.add(unwrap(item));
+      }
+      return unwrapped;
+    }
+    return object;
+  }
+
+  /**
+   * Forwards to the decorated object, counting the calls that are commands.
+   */
+  private final class Handler implements InvocationHandler {
+
+    private final Object target;
+
+    Handler(Object target) {
+      this.target = target;
+    }
+
+    WTFCommandCounter counter() {
+      return WTFCommandCounter.this;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      Class<?> declaring = method.getDeclaringClass();
+      if (declaring == WrapsDriver.class && proxy != driver) {
+        // the driver of an element, e.g. of a RemoteWebElement, is the counting one
+        return driver;
+      } else if (declaring == WrapsDriver.class || declaring == WrapsElement.class) {
+        return target;
+      }
+      if (declaring == Object.class) {
+        if ("equals".equals(method.getName())) {
+          return target.equals(unwrap(args[0]));
+        }
+        return method.invoke(target, args);
+      }
+      Object[] unwrapped = args != null ? (Object[]) unwrap(args) : null;
+      boolean command = method.getParameterTypes().length > 0
+          || !LOCAL_TYPES.contains(method.getReturnType().getSimpleName());
+      long start = System.nanoTime();
+      try {
+        return decorateResult(method, method.invoke(target, unwrapped));
+      } catch (InvocationTargetException e) {
+        throw e.getCause();
+      } finally {
+        if (command) {
+          record(method.getName(), System.nanoTime() - start);
+        }
+      }
+    }
+  }
+
+  /**
+   * The commands of an operation.
+   */
+  private static final class Helper {
+
+    private final Map<String, Command> byCommand = new LinkedHashMap<String, Command>();
+    private long calls;
+    private long lastCall;
+    private long commands;
+    private long nanos;
+
+    void record(long call, String command, long elapsedNanos) {
+      if (call != 0 && call != lastCall) {
+        calls++;
+        lastCall = call;
+      }
+      commands++;
+      nanos += elapsedNanos;
+      Command counted = byCommand.get(command);
+      if (counted == null) {
+        counted = new Command();
+        byCommand.put(command, counted);
+      }
+      counted.count++;
+      counted.nanos += elapsedNanos;
+    }
+  }
+
+  private static final class Command {
+
+    private long count;
+    private long nanos;
+  }
+}
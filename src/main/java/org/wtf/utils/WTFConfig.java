@@ -0,0 +1,410 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.util.logging.Level;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * WTF config. Settings of a WebDriver session: wait time out, polling
+ * strategy, tuner, evaluation and wait modes, element cache, interaction mode,
+ * stale retries, logging level and implicit wait.
+ * <p/>
+ * Settings are resolved in three scopes. A setting made on a session
+ * ({@link #of(WebDriver)}) wins; otherwise the setting of the calling thread
+ * ({@link #forCurrentThread()}) applies; otherwise the library default
+ * ({@link #defaults()}). Every scope is safe to read and update from many
+ * threads, and a change in one session or thread never leaks into another.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public class WTFConfig {
+
+  public static final long DEFAULT_TIMEOUT_IN_SECONDS = 30L;
+
+  public static final long DEFAULT_POLLING_INTERVAL_IN_MILLIS = 500L;
+
+  /**
+   * How the default waits learn that a condition became true.
+   */
+  public enum WaitMode {
+    /** By evaluating the condition, then sleeping, until it is true. */
+    POLL,
+    /**
+     * By an asynchronous script watching the page for changes, for the
+     * conditions a script can evaluate. Others keep polling.
+     */
+    PUSH
+  }
+
+  /**
+   * How WTFUtil performs interactions on the elements it has waited for.
+   */
+  public enum InteractionMode {
+    /** Through the WebDriver element commands. */
+    NATIVE,
+    /** Through element.click() in the page, for elements WebDriver reports as not clickable. */
+    SCRIPT
+  }
+
+  /**
+   * How WTFUtil evaluates the conditions it waits for.
+   */
+  public enum EvaluationMode {
+    /** Through the WebDriver commands, one per element query. */
+    NATIVE,
+    /** Through one script call per poll, for locators a script can resolve. */
+    SCRIPT
+  }
+
+  private enum Scope {
+    SESSION, THREAD, DEFAULTS
+  }
+
+  private static final WTFConfig DEFAULTS = new WTFConfig(Scope.DEFAULTS);
+
+  private static final ThreadLocal<WTFConfig> THREAD = new ThreadLocal<WTFConfig>();
+
+  private final Scope scope;
+
+  private volatile Long timeoutInSeconds;
+  private volatile Long pollingIntervalInMillis;
+  private volatile WTFPolling polling;
+  private volatile WTFTuner tuner;
+  private volatile EvaluationMode evaluationMode;
+  private volatile WaitMode waitMode;
+  private volatile Integer elementCacheSize;
+  private volatile InteractionMode interactionMode;
+  private volatile Integer staleRetries;
+  private volatile Level logLevel;
+  private volatile Long implicitWaitInMillis;
+
+  WTFConfig() {
+    this(Scope.SESSION);
+  }
+
+  private WTFConfig(Scope scope) {
+    this.scope = scope;
+  }
+
+  /**
+   * Returns the settings of the given session, creating them on first use.
+   * The settings live as long as the driver does.
+   *
+   * @param driver
+   *          the WebDriver
+   * @return the session settings
+   */
+  public static WTFConfig of(WebDriver driver) {
+    return WTFSession.of(driver).getConfig();
+  }
+
+  /**
+   * Returns the settings of the current thread, creating them on first use.
+   * They apply to every session used from this thread that has no setting of
+   * its own.
+   *
+   * @return the thread settings
+   */
+  public static WTFConfig forCurrentThread() {
+    WTFConfig config = THREAD.get();
+    if (config == null) {
+      config = new WTFConfig(Scope.THREAD);
+      THREAD.set(config);
+    }
+    return config;
+  }
+
+  /**
+   * Drops the settings of the current thread, e.g. when a pooled thread is
+   * handed to the next test.
+   */
+  public static void clearCurrentThread() {
+    THREAD.remove();
+  }
+
+  /**
+   * @return the library defaults, used when neither the session nor the
+   *         thread has a setting
+   */
+  public static WTFConfig defaults() {
+    return DEFAULTS;
+  }
+
+  private WTFConfig parent() {
+    switch (scope) {
+      case SESSION:
+        WTFConfig thread = THREAD.get();
+        return thread != null ? thread : DEFAULTS;
+      case THREAD:
+        return DEFAULTS;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @return the wait time out in seconds used by the default waits
+   */
+  public long getTimeoutInSeconds() {
+    Long timeout = timeoutInSeconds;
+    if (timeout != null) {
+      return timeout;
+    }
+    WTFConfig parent = parent();
+    return parent != null ? parent.getTimeoutInSeconds() : DEFAULT_TIMEOUT_IN_SECONDS;
+  }
+
+  /**
+   * @param timeoutInSeconds
+   *          the wait time out in seconds, or null to inherit it
+   */
+  public void setTimeoutInSeconds(Long timeoutInSeconds) {
+    this.timeoutInSeconds = timeoutInSeconds;
+  }
+
+  /**
+   * @return the interval between two polls of the default waits
+   */
+  public long getPollingIntervalInMillis() {
+    Long interval = pollingIntervalInMillis;
+    if (interval != null) {
+      return interval;
+    }
+    WTFConfig parent = parent();
+    return parent != null ? parent.getPollingIntervalInMillis()
+        : DEFAULT_POLLING_INTERVAL_IN_MILLIS;
+  }
+
+  /**
+   * @param pollingIntervalInMillis
+   *          the polling interval in milliseconds, or null to inherit it
+   */
+  public void setPollingIntervalInMillis(Long pollingIntervalInMillis) {
+    this.pollingIntervalInMillis = pollingIntervalInMillis;
+  }
+
+  /**
+   * @return the polling strategy of the default waits, or null when they poll
+   *         at the fixed polling interval
+   */
+  public WTFPolling getPolling() {
+    WTFPolling strategy = polling;
+    if (strategy != null) {
+      return strategy;
+    }
+    WTFConfig parent = parent();
+    return parent != null ? parent.getPolling() : null;
+  }
+
+  /**
+   * Selects how the default waits poll, e.g. {@link WTFPolling#backoff()} to
+   * return sooner on fast conditions and poll less on slow ones.
+   *
+   * @param polling
+   *          the polling strategy, or null to inherit it
+   */
+  public void setPolling(WTFPolling polling) {
+    this.polling = polling;
+  }
+
+  /**
+   * @return the tuner of the default waits, or null
+   */
+  public WTFTuner getTuner() {
+    WTFTuner current = tuner;
+    if (current != null) {
+      return current;
+    }
+    WTFConfig parent = parent();
+    return parent != null ? parent.getTuner() : null;
+  }
+
+  /**
+   * Lets the default waits learn per condition how long to wait, see
+   * {@link WTFTuner}.
+   *
+   * @param tuner
+   *          the tuner, or null to inherit it
+   */
+  public void setTuner(WTFTuner tuner) {
+    this.tuner = tuner;
+  }
+
+  /**
+   * @return how conditions are evaluated, NATIVE by default
+   */
+  public EvaluationMode getEvaluationMode() {
+    EvaluationMode mode = evaluationMode;
+    if (mode != null) {
+      return mode;
+    }
+    WTFConfig parent = parent();
+    return parent != null ? parent.getEvaluationMode() : EvaluationMode.NATIVE;
+  }
+
+  /**
+   * Selects SCRIPT to answer conditions that query an element several times
+   * (clickable, visible, selected, text ...) in one script call per poll
+   * instead of one WebDriver command per query.
+   *
+   * @param evaluationMode
+   *          how conditions are evaluated, or null to inherit it
+   */
+  public void setEvaluationMode(EvaluationMode evaluationMode) {
+    this.evaluationMode = evaluationMode;
+  }
+
+  /**
+   * @return how the default waits learn that a condition became true, POLL by
+   *         default
+   */
+  public WaitMode getWaitMode() {
+    WaitMode mode = waitMode;
+    if (mode != null) {
+      return mode;
+    }
+    WTFConfig parent = parent();
+    return parent != null ? parent.getWaitMode() : WaitMode.POLL;
+  }
+
+  /**
+   * Selects PUSH to have conditions evaluated in the page as soon as it
+   * changes rather than once per polling interval. PUSH implies the SCRIPT
+   * evaluation mode, and raises the script time out of the session to the
+   * wait time out when needed.
+   *
+   * @param waitMode
+   *          the wait mode, or null to inherit it
+   */
+  public void setWaitMode(WaitMode waitMode) {
+    this.waitMode = waitMode;
+  }
+
+  /**
+   * @return the number of elements the session keeps by locator, 0 (no cache)
+   *         by default
+   */
+  public int getElementCacheSize() {
+    Integer size = elementCacheSize;
+    if (size != null) {
+      return size;
+    }
+    WTFConfig parent = parent();
+    return parent != null ? parent.getElementCacheSize() : 0;
+  }
+
+  /**
+   * Lets the session remember the elements it located, so that waiting again
+   * on the same locator in the same page skips the lookup. The cache is
+   * dropped when the URL changes or a cached element is found stale. An
+   * element returned by {@link WTFUtil#findElement(WebDriver, By)} may come
+   * from the cache, and go stale when the page replaces it without changing
+   * its URL.
+   *
+   * @param elementCacheSize
+   *          the number of elements to keep, 0 to disable the cache, or null
+   *          to inherit it
+   */
+  public void setElementCacheSize(Integer elementCacheSize) {
+    this.elementCacheSize = elementCacheSize;
+  }
+
+  /**
+   * @return how interactions are performed, NATIVE by default
+   */
+  public InteractionMode getInteractionMode() {
+    InteractionMode mode = interactionMode;
+    if (mode != null) {
+      return mode;
+    }
+    WTFConfig parent = parent();
+    return parent != null ? parent.getInteractionMode() : InteractionMode.NATIVE;
+  }
+
+  /**
+   * @param interactionMode
+   *          how interactions are performed, or null to inherit it
+   */
+  public void setInteractionMode(InteractionMode interactionMode) {
+    this.interactionMode = interactionMode;
+  }
+
+  /**
+   * @return the number of times an interaction is repeated on an element that
+   *         went stale, 2 by default
+   */
+  public int getStaleRetries() {
+    Integer retries = staleRetries;
+    if (retries != null) {
+      return retries;
+    }
+    WTFConfig parent = parent();
+    return parent != null ? parent.getStaleRetries() : 2;
+  }
+
+  /**
+   * Lets click, type and clear look their element up again and repeat the
+   * interaction when the element went stale between the wait and the
+   * interaction, e.g. because the page rendered it again.
+   *
+   * @param staleRetries
+   *          the number of retries, 0 to fail on the first stale element, or
+   *          null to inherit it
+   */
+  public void setStaleRetries(Integer staleRetries) {
+    this.staleRetries = staleRetries;
+  }
+
+  /**
+   * @return the level WebDriverExceptions raised while polling are logged at,
+   *         WARNING by default
+   */
+  public Level getLogLevel() {
+    Level level = logLevel;
+    if (level != null) {
+      return level;
+    }
+    WTFConfig parent = parent();
+    return parent != null ? parent.getLogLevel() : Level.WARNING;
+  }
+
+  /**
+   * @param logLevel
+   *          the level to log polling failures at, Level.OFF to silence them,
+   *          or null to inherit it
+   */
+  public void setLogLevel(Level logLevel) {
+    this.logLevel = logLevel;
+  }
+
+  /**
+   * @return the implicit wait the session runs with, 0 by default
+   */
+  public long getImplicitWaitInMillis() {
+    Long implicitWait = implicitWaitInMillis;
+    if (implicitWait != null) {
+      return implicitWait;
+    }
+    WTFConfig parent = parent();
+    return parent != null ? parent.getImplicitWaitInMillis() : 0L;
+  }
+
+  /**
+   * Tells the utils the implicit wait set on the session, which WebDriver
+   * cannot report. A WTFUtil wait then sets the implicit wait to 0 while it
+   * polls and back to this value afterwards, so that an element not there
+   * yet costs one lookup instead of the implicit wait at every poll.
+   *
+   * @param implicitWaitInMillis
+   *          the implicit wait of the session, 0 if it has none, or null to
+   *          inherit it
+   */
+  public void setImplicitWaitInMillis(Long implicitWaitInMillis) {
+    this.implicitWaitInMillis = implicitWaitInMillis;
+  }
+}
@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WTF deadline. One time budget for a block of WTFUtil calls on the current
+ * thread:
+ *
+ * <pre>
+ * WTFDeadline deadline = WTFDeadline.start(20, TimeUnit.SECONDS);
+ * try {
+ *   WTFUtil.click(driver, By.id("checkout"));
+ *   WTFUtil.type(driver, By.id("card"), card);
+ *   WTFUtil.click(driver, By.id("pay"));
+ * } finally {
+ *   deadline.end();
+ * }
+ * </pre>
+ *
+ * Every {@link WTFWait} started in the block waits at most for what remains
+ * of the budget, so the block times out once the budget is spent instead of
+ * each wait taking its whole time out. The waits are recorded as steps,
+ * which {@link #report()} lists with the time each took, and the time out
+ * message of the wait that ran out of budget ends with that report.
+ * Deadlines nest: an inner deadline never ends after the outer one.
+ * <p/>
+ * Without a deadline a WTFUtil operation still has a single budget: the
+ * waits of an operation made of several waits share the time out of the
+ * wait they are given, counted from the start of the operation. Waits other
+ * than WTFWait, such as a WebDriverWait passed by the caller, keep their own
+ * time out.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public final class WTFDeadline {
+
+  private static final ThreadLocal<WTFDeadline> CURRENT = new ThreadLocal<WTFDeadline>();
+
+  private final WTFDeadline outer;
+  private final long budgetInMillis;
+  private final long start;
+  private final long end;
+  private final List<String> steps = new ArrayList<String>();
+  private volatile boolean ended;
+
+  private WTFDeadline(WTFDeadline outer, long budgetInMillis) {
+    this.outer = outer;
+    this.budgetInMillis = budgetInMillis;
+    this.start = System.nanoTime();
+    long end = start + TimeUnit.MILLISECONDS.toNanos(budgetInMillis);
+    this.end = outer != null && outer.end - end < 0 ? outer.end : end;
+  }
+
+  /**
+   * Starts a deadline on the current thread. Must be paired with
+   * {@link #end()} in a finally block.
+   *
+   * @param timeout
+   *          the budget of the block
+   * @param unit
+   *          the unit of the budget
+   * @return the deadline
+   */
+  public static WTFDeadline start(long timeout, TimeUnit unit) {
+    WTFDeadline deadline = new WTFDeadline(CURRENT.get(), unit.toMillis(timeout));
+    CURRENT.set(deadline);
+    return deadline;
+  }
+
+  /**
+   * @return the deadline of the current thread, or null
+   */
+  public static WTFDeadline current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Ends the deadline, making the outer one, if any, current again. The
+   * report stays available.
+   *
+   * @throws IllegalStateException
+   *           if the deadline is not the current one of this thread
+   */
+  public void end() {
+    if (CURRENT.get() != this) {
+      throw new IllegalStateException("Not the current deadline of this thread");
+    }
+    ended = true;
+    if (outer != null) {
+      CURRENT.set(outer);
+    } else {
+      CURRENT.remove();
+    }
+  }
+
+  /**
+   * @return the time left before the deadline, 0 once it is over
+   */
+  public long getRemainingMillis() {
+    return Math.max(TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()), 0);
+  }
+
+  /**
+   * @return true once the budget is spent
+   */
+  public boolean isExpired() {
+    return end - System.nanoTime() <= 0;
+  }
+
+  /**
+   * @return the steps taken so far, as listed by {@link #report()}
+   */
+  public List<String> getSteps() {
+    synchronized (steps) {
+      return Collections.unmodifiableList(new ArrayList<String>(steps));
+    }
+  }
+
+  /**
+   * Records a wait that ended, in this deadline and the outer ones.
+   */
+  void step(Object condition, long elapsedInMillis, boolean timedOut) {
+    WTFMetrics.Operation operation = WTFMetrics.current();
+    String step = String.format("%s%s: %d ms%s",
+        operation != null ? operation.name().toLowerCase() + " " : "", condition,
+        elapsedInMillis, timedOut ? " (timed out)" : "");
+    for (WTFDeadline deadline = this; deadline != null; deadline = deadline.outer) {
+      synchronized (deadline.steps) {
+        deadline.steps.add(step);
+      }
+    }
+  }
+
+  /**
+   * @return the budget, the time used and the steps taken, one per line
+   */
+  public String report() {
+    StringBuilder report = new StringBuilder();
+    report.append(String.format("deadline of %d ms, %d ms used%s", budgetInMillis,
+        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), ended ? "" : " so far"));
+    for (String step : getSteps()) {
+      report.append("\n  ").append(step);
+    }
+    return report.toString();
+  }
+
+  public String toString() {
+    return report();
+  }
+
+  /**
+   * Returns the time a wait starting now may take: the given time out counted
+   * from the start of the outermost WTFUtil operation of the thread, and no
+   * more than what remains of the deadline of the thread.
+   *
+   * @param timeoutInMillis
+   *          the time out of the wait
+   */
+  static long budgetInMillis(long timeoutInMillis) {
+    long budget = timeoutInMillis - WTFMetrics.operationElapsedMillis();
+    WTFDeadline deadline = CURRENT.get();
+    if (deadline != null) {
+      budget = Math.min(budget, deadline.getRemainingMillis());
+    }
+    return Math.max(budget, 0);
+  }
+}
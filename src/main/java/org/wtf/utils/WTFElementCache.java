@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.RemoteWebElement;
+
+/**
+ * Elements of a session by parent and locator, least recently used first out.
+ * Enabled through {@link WTFConfig#setElementCacheSize(Integer)}.
+ * <p/>
+ * The cache forgets every element once the URL of the page changes, checked
+ * at most every {@value #URL_CHECK_INTERVAL_IN_MILLIS} ms, and once one of
+ * its elements turns out to be stale, which is how a replaced document
+ * without a URL change is noticed. Elements hold their driver, and the cache
+ * must never keep a dead session alive: the elements of a RemoteWebDriver
+ * are kept by their id, and built again against the driver when asked for,
+ * so that they stay cached until evicted. Other elements and parents are
+ * only weakly referenced.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+final class WTFElementCache {
+
+  static final long URL_CHECK_INTERVAL_IN_MILLIS = 1000L;
+
+  private final int maxSize;
+  /** The id of a remote element, or a weak reference to any other. */
+  private final Map<Key, Object> elements;
+
+  private String url;
+  private long urlCheckedAt;
+
+  WTFElementCache(final int maxSize) {
+    this.maxSize = maxSize;
+    this.elements = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+
+      private static final long serialVersionUID = 1L;
+
+      protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * @param parent
+   *          the parent searched in, or null for the whole page
+   * @return the cached element, or null
+   */
+  WebElement get(WebDriver driver, WebElement parent, By by) {
+    checkUrl(driver);
+    Key key = new Key(parent, by);
+    Object cached;
+    synchronized (this) {
+      cached = elements.get(key);
+      if (cached instanceof Reference && ((Reference<?>) cached).get() == null) {
+        elements.remove(key);
+        return null;
+      }
+    }
+    if (cached instanceof String) {
+      return remoteElement((RemoteWebDriver) driver, (String) cached);
+    }
+    return cached != null ? (WebElement) ((Reference<?>) cached).get() : null;
+  }
+
+  /**
+   * @param parent
+   *          the parent searched in, or null for the whole page
+   */
+  void put(WebDriver driver, WebElement parent, By by, WebElement element) {
+    if (url == null) {
+      WTFMetrics.command(driver);
+      String current = driver.getCurrentUrl();
+      synchronized (this) {
+        url = current;
+        urlCheckedAt = System.nanoTime();
+      }
+    }
+    Object cached = isRemote(driver, element) ? ((RemoteWebElement) element).getId()
+        : new WeakReference<WebElement>(element);
+    synchronized (this) {
+      elements.put(new Key(parent, by), cached);
+    }
+  }
+
+  /**
+   * @return true if the element can be built again from its id
+   */
+  private static boolean isRemote(WebDriver driver, WebElement element) {
+    return driver instanceof RemoteWebDriver && element.getClass() == RemoteWebElement.class;
+  }
+
+  private static WebElement remoteElement(RemoteWebDriver driver, String id) {
+    RemoteWebElement element = new RemoteWebElement();
+    element.setParent(driver);
+    element.setId(id);
+    element.setFileDetector(driver.getFileDetector());
+    return element;
+  }
+
+  /**
+   * Forgets every element.
+   *
+   * @return true if there were elements to forget
+   */
+  synchronized boolean clear() {
+    boolean cleared = !elements.isEmpty();
+    elements.clear();
+    url = null;
+    return cleared;
+  }
+
+  synchronized int size() {
+    return elements.size();
+  }
+
+  private void checkUrl(WebDriver driver) {
+    synchronized (this) {
+      if (elements.isEmpty() || System.nanoTime() - urlCheckedAt
+          < TimeUnit.MILLISECONDS.toNanos(URL_CHECK_INTERVAL_IN_MILLIS)) {
+        return;
+      }
+      urlCheckedAt = System.nanoTime();
+    }
+    WTFMetrics.command(driver);
+    String current = driver.getCurrentUrl();
+    synchronized (this) {
+      if (url != null && !url.equals(current)) {
+        elements.clear();
+      }
+      url = current;
+    }
+  }
+
+  /**
+   * Parent and locator. A remote parent is kept by its id, any other is
+   * weakly referenced; an entry whose parent was collected is never matched
+   * again and ages out.
+   */
+  private static final class Key {
+
+    private final By by;
+    private final String parentId;
+    private final Reference<WebElement> parent;
+    private final int hash;
+
+    Key(WebElement parent, By by) {
+      this.by = by;
+      this.parentId = parent instanceof RemoteWebElement ? ((RemoteWebElement) parent).getId()
+          : null;
+      this.parent = parent != null && parentId == null
+          ? new WeakReference<WebElement>(parent) : null;
+      this.hash = 31 * by.hashCode() + (parentId != null ? parentId.hashCode()
+          : parent != null ? parent.hashCode() : 0);
+    }
+
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      if (hash != other.hash || !by.equals(other.by)) {
+        return false;
+      }
+      if (parentId != null || other.parentId != null) {
+        return parentId != null && parentId.equals(other.parentId);
+      }
+      if (parent == null || other.parent == null) {
+        return parent == other.parent;
+      }
+      WebElement element = parent.get();
+      return element != null && element.equals(other.parent.get());
+    }
+
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
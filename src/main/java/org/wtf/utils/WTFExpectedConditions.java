@@ -5,16 +5,19 @@
 package org.wtf.utils;
 
 import org.openqa.selenium.By;
+import org.openqa.selenium.NotFoundException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.StaleElementReferenceException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.WebDriverException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.NoSuchElementException;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.Map;
 
 
 /**
@@ -24,75 +27,293 @@ import java.util.logging.Logger;
  */
 public class WTFExpectedConditions {
 
-  private final static Logger log = Logger.getLogger(WTFExpectedConditions.class.getName());
-
   private WTFExpectedConditions() {
     // Utility class
   }
 
   /**
-   * @return the given element if it is visible and has non-zero size, otherwise null.
+   * Logs a WebDriverException raised while polling, rate limited by
+   * {@link WTFFailureLog}.
    */
-  private static WebElement elementIfVisible(WebElement element) {
-    return element.isDisplayed() ? element : null;
+  private static void logFailure(WebDriver driver, By by, WebDriverException e) {
+    WTFFailureLog.failure(driver, by, e);
   }
 
   /**
-   * Looks up an element. Logs and re-throws WebDriverException if thrown. <p/>
-   * Method exists to gather data for http://code.google.com/p/selenium/issues/detail?id=1800
+   * What a poll found of an element, so that the usual outcomes of a poll
+   * are told apart without an exception.
    */
-  private static WebElement findElement(By by, WebDriver driver) {
-    try {
-      return driver.findElement(by);
-    } catch (NoSuchElementException e) {
-      throw e;
-    } catch (WebDriverException e) {
-      log.log(Level.WARNING,
-          String.format("WebDriverException thrown by findElement(%s)", by), e);
-      throw e;
-    }
+  private enum Lookup {
+    ABSENT, HIDDEN, SHOWN, STALE
   }
 
   /**
-   * Looks up an element. Logs and re-throws WebDriverException if thrown. <p/>
+   * @param element
+   *          the element found, or null
    */
-  private static WebElement findElement(By by, WebElement el) {
+  private static Lookup lookup(WebElement element) {
+    if (element == null) {
+      return Lookup.ABSENT;
+    }
     try {
-      return el.findElement(by);
-    } catch (NoSuchElementException e) {
-      return null;
-    } catch (WebDriverException e) {
-      log.log(Level.WARNING, String.format("WebDriverException thrown by findElement(%s)", by), e);
-      return null;
+      return element.isDisplayed() ? Lookup.SHOWN : Lookup.HIDDEN;
+    } catch (StaleElementReferenceException e) {
+      return Lookup.STALE;
     }
   }
 
   /**
-   * Looks up an element. Logs and re-throws WebDriverException if thrown. <p/>
+   * Looks up an element in the sub DOM, or in the whole page when el is null,
+   * through the element cache of the session if it has one. Elements are
+   * listed rather than found, so that an element not there yet costs no
+   * NoSuchElementException. Logs WebDriverException if thrown; only a stale
+   * element counts as absent in the whole page, other failures are thrown. <p/>
+   *
+   * @return the first element located, or null
    */
-  private static WebElement findElementSilent(By by, WebElement el) {
+  private static WebElement findElement(By by, WebElement el, WebDriver driver) {
+    WTFElementCache cache = WTFSession.of(driver).getElementCache();
+    if (cache != null) {
+      WebElement cached = cache.get(driver, el, by);
+      if (cached != null) {
+        return cached;
+      }
+    }
     try {
-      return el.findElement(by);
-    } catch (NoSuchElementException e) {
-      return null;
+      List<WebElement> found = el != null ? el.findElements(by) : driver.findElements(by);
+      if (found.isEmpty()) {
+        return null;
+      }
+      WebElement element = found.get(0);
+      if (cache != null) {
+        cache.put(driver, el, by, element);
+      }
+      return element;
     } catch (WebDriverException e) {
+      logFailure(driver, by, e);
+      if (el == null && !(e instanceof StaleElementReferenceException)) {
+        throw e;
+      }
       return null;
     }
   }
 
   /**
-   * @see #findElement(By, WebElement)
+   * @see #findElement(By, WebElement, WebDriver)
    */
-  private static List<WebElement> findElements(By by, WebElement el) {
+  private static List<WebElement> findElements(By by, WebElement el, WebDriver driver) {
     try {
-      return el.findElements(by);
+      return el != null ? el.findElements(by) : driver.findElements(by);
+    } catch (StaleElementReferenceException e) {
+      logFailure(driver, by, e);
+      return Collections.emptyList();
     } catch (WebDriverException e) {
-      log.log(Level.WARNING,
-          String.format("WebDriverException thrown by findElement(%s)", by), e);
+      logFailure(driver, by, e);
       throw e;
     }
   }
 
+  /**
+   * Drops the element cache of the session once an element went stale, as the
+   * stale element may have come from the cache.
+   *
+   * @return true if cached elements were dropped, so the condition has to be
+   *         evaluated again
+   */
+  private static boolean forgetCachedElements(WebDriver driver) {
+    WTFElementCache cache = WTFSession.of(driver).getElementCache();
+    return cache != null && cache.clear();
+  }
+
+  /**
+   * A condition on the element a locator finds in the sub DOM of a parent,
+   * or in the whole page. Conditions are immutable, and equal when they are
+   * of the same kind with equal parents, locators and arguments, so that a
+   * caller may build one once and share it between calls and threads, or use
+   * it as a key. Building one costs a single small object: the hash is only
+   * computed when asked for.
+   */
+  static final class LocatorCondition<T> implements ExpectedCondition<T> {
+
+    enum Kind {
+      PRESENCE, ALL_PRESENCE, VISIBILITY, CLICKABLE, INVISIBILITY, SELECTION, TEXT, NO_TEXT,
+      ATTRIBUTE
+    }
+
+    private final Kind kind;
+    private final WebElement parent;
+    private final By locator;
+    private final Object[] args;
+    private int hash;
+    private String description;
+
+    LocatorCondition(Kind kind, WebElement parent, By locator, Object[] args) {
+      this.kind = kind;
+      this.parent = parent;
+      this.locator = locator;
+      this.args = args;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T apply(WebDriver driver) {
+      return (T) evaluate(driver);
+    }
+
+    private Object evaluate(WebDriver driver) {
+      switch (kind) {
+        case PRESENCE:
+          return findElement(locator, parent, driver);
+        case ALL_PRESENCE:
+          List<WebElement> elements = findElements(locator, parent, driver);
+          return elements.size() > 0 ? elements : null;
+        case VISIBILITY:
+          return visible(driver);
+        case CLICKABLE:
+          WebElement element = visible(driver);
+          try {
+            return element != null && element.isEnabled() ? element : null;
+          } catch (StaleElementReferenceException e) {
+            return stale(driver, null);
+          }
+        case INVISIBILITY:
+          switch (lookup(findElement(locator, parent, driver))) {
+            case SHOWN:
+              return false;
+            case STALE:
+              // A stale element is no longer visible, unless it came from the cache.
+              return stale(driver, true);
+            default:
+              // The element is not present in DOM, or present but invisible.
+              return true;
+          }
+        default:
+          try {
+            return state(findElement(locator, parent, driver));
+          } catch (StaleElementReferenceException e) {
+            return stale(driver, kind == Kind.NO_TEXT ? Boolean.TRUE : null);
+          }
+      }
+    }
+
+    private WebElement visible(WebDriver driver) {
+      WebElement element = findElement(locator, parent, driver);
+      switch (lookup(element)) {
+        case SHOWN:
+          return element;
+        case STALE:
+          stale(driver, null);
+          return null;
+        default:
+          return null;
+      }
+    }
+
+    /**
+     * @return the state the element is expected to have, for the conditions
+     *         on a state of the element
+     */
+    private Boolean state(WebElement element) {
+      switch (kind) {
+        case SELECTION:
+          return element != null ? element.isSelected() == (Boolean) args[0] : null;
+        case TEXT:
+          return element != null && element.getText().contains((String) args[0]);
+        case NO_TEXT:
+          return element == null || !element.getText().equals(args[0]);
+        default:
+          String value = element != null ? element.getAttribute((String) args[0]) : null;
+          return value != null && value.contains((String) args[1]);
+      }
+    }
+
+    /**
+     * Forgets the cached elements once an element went stale.
+     *
+     * @param uncached
+     *          the value of the condition when the element did not come from
+     *          the cache
+     * @return null to poll again if the element came from the cache,
+     *         otherwise uncached
+     */
+    private static Object stale(WebDriver driver, Object uncached) {
+      if (forgetCachedElements(driver) || uncached == null) {
+        WTFMetrics.staleRetry();
+        return null;
+      }
+      return uncached;
+    }
+
+    public boolean equals(Object o) {
+      if (o == this) {
+        return true;
+      } else if (!(o instanceof LocatorCondition)) {
+        return false;
+      }
+      LocatorCondition<?> other = (LocatorCondition<?>) o;
+      return kind == other.kind
+          && (parent == null ? other.parent == null : parent.equals(other.parent))
+          && Arrays.equals(args, other.args)
+          && (locator == other.locator || locator.equals(other.locator));
+    }
+
+    public int hashCode() {
+      int h = hash;
+      if (h == 0) {
+        h = 31 * kind.hashCode() + (parent != null ? parent.hashCode() : 0);
+        h = 31 * (31 * h + locator.hashCode()) + Arrays.hashCode(args);
+        hash = h;
+      }
+      return h;
+    }
+
+    public String toString() {
+      if (description == null) {
+        description = describe();
+      }
+      return description;
+    }
+
+    private String describe() {
+      switch (kind) {
+        case PRESENCE:
+          return "presence of element located by: " + locator;
+        case ALL_PRESENCE:
+          return "presence of any elements located by " + locator;
+        case VISIBILITY:
+          return "visibility of element located by " + locator;
+        case CLICKABLE:
+          return "element to be clickable: " + locator;
+        case INVISIBILITY:
+          return "element to no longer be visible: " + locator;
+        case SELECTION:
+          return String.format("element found by %s to %sbe selected",
+              locator, ((Boolean) args[0] ? "" : "not "));
+        case TEXT:
+          return String.format("text ('%s') to be present in element found by %s",
+              args[0], locator);
+        case NO_TEXT:
+          return String.format("element containing '%s' to no longer be visible: %s",
+              args[0], locator);
+        default:
+          return String.format(
+              "Attribute value ('%s') of the attribute name ('%s') of element located by %s",
+              args[1], args[0], locator);
+      }
+    }
+  }
+
+  private static final Object[] NO_ARGS = new Object[0];
+
+  private static <T> ExpectedCondition<T> locatorCondition(LocatorCondition.Kind kind,
+      WebElement parent, By locator) {
+    return new LocatorCondition<T>(kind, parent, locator, NO_ARGS);
+  }
+
+  private static <T> ExpectedCondition<T> locatorCondition(LocatorCondition.Kind kind,
+      WebElement parent, By locator, Object... args) {
+    return new LocatorCondition<T>(kind, parent, locator, args);
+  }
+
   /**
    * An expectation for checking that an element is present on the sub DOM of a page and visible.
    * Visibility means that the element is not only displayed but also has a height and width that
@@ -104,19 +325,7 @@ public class WTFExpectedConditions {
    */
   public static ExpectedCondition<WebElement> visibilityOfElementLocated_(final WebElement parent,
       final By locator) {
-    return new ExpectedCondition<WebElement>() {
-      public WebElement apply(WebDriver driver) {
-        try {
-          return elementIfVisible(findElement(locator, parent));
-        } catch (StaleElementReferenceException e) {
-          return null;
-        }
-      }
-
-      public String toString() {
-        return "visibility of element located by " + locator;
-      }
-    };
+    return locatorCondition(LocatorCondition.Kind.VISIBILITY, parent, locator);
   }
 
   /**
@@ -125,28 +334,7 @@ public class WTFExpectedConditions {
    */
   public static ExpectedCondition<WebElement> elementToBeClickable_(final WebElement parent,
       final By locator) {
-    return new ExpectedCondition<WebElement>() {
-
-      public ExpectedCondition<WebElement> visibilityOfElementLocated =
-        visibilityOfElementLocated_(parent, locator);
-
-      public WebElement apply(WebDriver driver) {
-        WebElement element = visibilityOfElementLocated.apply(driver);
-        try {
-          if (element != null && element.isEnabled()) {
-            return element;
-          } else {
-            return null;
-          }
-        } catch (StaleElementReferenceException e) {
-          return null;
-        }
-      }
-
-      public String toString() {
-        return "element to be clickable: " + locator;
-      }
-    };
+    return locatorCondition(LocatorCondition.Kind.CLICKABLE, parent, locator);
   }
 
   /**
@@ -158,16 +346,7 @@ public class WTFExpectedConditions {
    */
   public static ExpectedCondition<WebElement> presenceOfElementLocated_(final WebElement parent,
       final By locator) {
-    return new ExpectedCondition<WebElement>() {
-      
-      public WebElement apply(WebDriver driver) {
-        return findElement(locator, parent);
-      }
-
-      public String toString() {
-        return "presence of element located by: " + locator;
-      }
-    };
+    return locatorCondition(LocatorCondition.Kind.PRESENCE, parent, locator);
   }
 
   /**
@@ -178,27 +357,7 @@ public class WTFExpectedConditions {
    */
   public static ExpectedCondition<Boolean> invisibilityOfElementLocated_(final WebElement parent,
       final By locator) {
-    return new ExpectedCondition<Boolean>() {
-      
-      public Boolean apply(WebDriver driver) {
-        try {
-          return !(findElementSilent(locator, parent) != null &&
-              findElementSilent(locator, parent).isDisplayed());
-        } catch (NoSuchElementException e) {
-          // Returns true because the element is not present in DOM. The
-          // try block checks if the element is present but is invisible.
-          return true;
-        } catch (StaleElementReferenceException e) {
-          // Returns true because stale element reference implies that element
-          // is no longer visible.
-          return true;
-        }
-      }
-
-      public String toString() {
-        return "element to no longer be visible: " + locator;
-      }
-    };
+    return locatorCondition(LocatorCondition.Kind.INVISIBILITY, parent, locator);
   }
 
   /**
@@ -210,38 +369,12 @@ public class WTFExpectedConditions {
    */
   public static ExpectedCondition<List<WebElement>> presenceOfAllElementsLocatedBy_(
       final WebElement parent, final By locator) {
-    return new ExpectedCondition<List<WebElement>>() {
-      
-      public List<WebElement> apply(WebDriver driver) {
-        List<WebElement> elements = findElements(locator, parent);
-        return elements.size() > 0 ? elements : null;
-      }
-
-      
-      public String toString() {
-        return "presence of any elements located by " + locator;
-      }
-    };
+    return locatorCondition(LocatorCondition.Kind.ALL_PRESENCE, parent, locator);
   }
 
   public static ExpectedCondition<Boolean> elementSelectionStateToBe_(final WebElement parent,
       final By locator, final boolean selected) {
-    return new ExpectedCondition<Boolean>() {
-      
-      public Boolean apply(WebDriver driver) {
-        try {
-          WebElement element = findElement(locator, parent);
-          return element.isSelected() == selected;
-        } catch (StaleElementReferenceException e) {
-          return null;
-        }
-      }
-
-      public String toString() {
-        return String.format("element found by %s to %sbe selected",
-            locator, (selected ? "" : "not "));
-      }
-    };
+    return locatorCondition(LocatorCondition.Kind.SELECTION, parent, locator, selected);
   }
 
   /**
@@ -250,23 +383,7 @@ public class WTFExpectedConditions {
    */
   public static ExpectedCondition<Boolean> textToBePresentInElement_(final WebElement parent,
       final By locator, final String text) {
-
-    return new ExpectedCondition<Boolean>() {
-      
-      public Boolean apply(WebDriver driver) {
-        try {
-          String elementText = findElement(locator, parent).getText();
-          return elementText.contains(text);
-        } catch (StaleElementReferenceException e) {
-          return null;
-        }
-      }
-
-      public String toString() {
-        return String.format("text ('%s') to be present in element found by %s",
-            text, locator);
-      }
-    };
+    return locatorCondition(LocatorCondition.Kind.TEXT, parent, locator, text);
   }
 
   /**
@@ -278,27 +395,7 @@ public class WTFExpectedConditions {
    */
   public static ExpectedCondition<Boolean> invisibilityOfElementWithText_(final WebElement parent,
       final By locator, final String text) {
-    return new ExpectedCondition<Boolean>() {
-      
-      public Boolean apply(WebDriver driver) {
-        try {
-          return !findElement(locator, parent).getText().equals(text);
-        } catch (NoSuchElementException e) {
-          // Returns true because the element with text is not present in DOM. The
-          // try block checks if the element is present but is invisible.
-          return true;
-        } catch (StaleElementReferenceException e) {
-          // Returns true because stale element reference implies that element
-          // is no longer visible.
-          return true;
-        }
-      }
-
-      public String toString() {
-        return String.format("element containing '%s' to no longer be visible: %s",
-            text, locator);
-      }
-    };
+    return locatorCondition(LocatorCondition.Kind.NO_TEXT, parent, locator, text);
   }
 
   /**
@@ -307,58 +404,361 @@ public class WTFExpectedConditions {
    */
   public static ExpectedCondition<Boolean> attributeValueToBePresentInElement(
       final By locator, final String attributeName, final String attributeValue) {
+    return attributeValueToBePresentInElement_(null, locator, attributeName, attributeValue);
+  }
 
-    return new ExpectedCondition<Boolean>() {
-      
-      public Boolean apply(WebDriver driver) {
+  /**
+   * An expectation for checking if the given attribute value is present in a sub DOM and in the
+   * specified elements's attribute name.
+   */
+  public static ExpectedCondition<Boolean> attributeValueToBePresentInElement_(
+      final WebElement parent, final By locator, final String attributeName,
+      final String attributeValue) {
+    return locatorCondition(LocatorCondition.Kind.ATTRIBUTE, parent, locator, attributeName,
+        attributeValue);
+  }
+
+  private static final String FIRST =
+      "var e = wtf.first(arguments[0], arguments[1], arguments[2]);\n";
+
+  private static final String PRESENT_SCRIPT = WTFScripts.script(FIRST + "return e;");
+
+  private static final String VISIBLE_SCRIPT = WTFScripts.script(FIRST
+      + "return e && wtf.shown(e) ? e : null;");
+
+  private static final String CLICKABLE_SCRIPT = WTFScripts.script(FIRST
+      + "return e && wtf.shown(e) && wtf.enabled(e) && !wtf.obscured(e) ? e : null;");
+
+  private static final String INVISIBLE_SCRIPT = WTFScripts.script(FIRST
+      + "return !e || !wtf.shown(e);");
+
+  private static final String SELECTED_SCRIPT = WTFScripts.script(FIRST
+      + "return e ? !!(e.checked || e.selected) === arguments[3] : null;");
+
+  private static final String TEXT_SCRIPT = WTFScripts.script(FIRST
+      + "return !!e && wtf.text(e).indexOf(arguments[3]) >= 0;");
+
+  private static final String NO_TEXT_SCRIPT = WTFScripts.script(FIRST
+      + "return !e || wtf.text(e) !== arguments[3];");
+
+  private static final String ATTRIBUTE_SCRIPT = WTFScripts.script(FIRST
+      + "var value = e ? wtf.attribute(e, arguments[3]) : null;\n"
+      + "return value !== null && value.indexOf(arguments[4]) >= 0;");
+
+  /**
+   * Same as {@link #presenceOfElementLocated_(WebElement, By)}, evaluated by
+   * a script, so that it can be awaited in the page.
+   *
+   * @param parent the WebElement of a sub DOM, or null for the whole page
+   * @param locator used to find the element
+   * @return the WebElement once it is located
+   */
+  public static ExpectedCondition<WebElement> presenceOfElementLocatedByScript(
+      final WebElement parent, final By locator) {
+    return new WTFScriptCondition<WebElement>(PRESENT_SCRIPT,
+        "presence of element located by " + locator, parent, locator);
+  }
+
+  /**
+   * Same as {@link #visibilityOfElementLocated_(WebElement, By)}, evaluated
+   * by one script call per poll instead of a lookup and a visibility command.
+   *
+   * @param parent the WebElement of a sub DOM, or null for the whole page
+   * @param locator used to find the element
+   * @return the WebElement once it is located and visible
+   */
+  public static ExpectedCondition<WebElement> visibilityOfElementLocatedByScript(
+      final WebElement parent, final By locator) {
+    return new WTFScriptCondition<WebElement>(VISIBLE_SCRIPT,
+        "visibility of element located by " + locator, parent, locator);
+  }
+
+  /**
+   * An expectation for checking an element is visible, enabled and not
+   * covered by another element, evaluated by one script call per poll instead
+   * of a lookup and three state commands.
+   *
+   * @param parent the WebElement of a sub DOM, or null for the whole page
+   * @param locator used to find the element
+   * @return the WebElement once it can be clicked
+   */
+  public static ExpectedCondition<WebElement> elementToBeClickableByScript(
+      final WebElement parent, final By locator) {
+    return new WTFScriptCondition<WebElement>(CLICKABLE_SCRIPT,
+        "element to be clickable: " + locator, parent, locator);
+  }
+
+  /**
+   * Same as {@link #invisibilityOfElementLocated_(WebElement, By)}, evaluated
+   * by one script call per poll.
+   *
+   * @param parent the WebElement of a sub DOM, or null for the whole page
+   * @param locator used to find the element
+   */
+  public static ExpectedCondition<Boolean> invisibilityOfElementLocatedByScript(
+      final WebElement parent, final By locator) {
+    return new WTFScriptCondition<Boolean>(INVISIBLE_SCRIPT,
+        "element to no longer be visible: " + locator, parent, locator);
+  }
+
+  /**
+   * Same as {@link #elementSelectionStateToBe_(WebElement, By, boolean)},
+   * evaluated by one script call per poll.
+   *
+   * @param parent the WebElement of a sub DOM, or null for the whole page
+   * @param locator used to find the element
+   * @param selected the expected selection state
+   */
+  public static ExpectedCondition<Boolean> elementSelectionStateToBeByScript(
+      final WebElement parent, final By locator, final boolean selected) {
+    return new WTFScriptCondition<Boolean>(SELECTED_SCRIPT,
+        String.format("element found by %s to %sbe selected", locator, (selected ? "" : "not ")),
+        parent, locator, selected);
+  }
+
+  /**
+   * Same as {@link #textToBePresentInElement_(WebElement, By, String)},
+   * evaluated by one script call per poll.
+   *
+   * @param parent the WebElement of a sub DOM, or null for the whole page
+   * @param locator used to find the element
+   * @param text the text to look for
+   */
+  public static ExpectedCondition<Boolean> textToBePresentInElementByScript(
+      final WebElement parent, final By locator, final String text) {
+    return new WTFScriptCondition<Boolean>(TEXT_SCRIPT,
+        String.format("text ('%s') to be present in element found by %s", text, locator),
+        parent, locator, text);
+  }
+
+  /**
+   * Same as {@link #invisibilityOfElementWithText_(WebElement, By, String)},
+   * evaluated by one script call per poll.
+   *
+   * @param parent the WebElement of a sub DOM, or null for the whole page
+   * @param locator used to find the element
+   * @param text of the element
+   */
+  public static ExpectedCondition<Boolean> invisibilityOfElementWithTextByScript(
+      final WebElement parent, final By locator, final String text) {
+    return new WTFScriptCondition<Boolean>(NO_TEXT_SCRIPT,
+        String.format("element containing '%s' to no longer be visible: %s", text, locator),
+        parent, locator, text);
+  }
+
+  /**
+   * Same as
+   * {@link #attributeValueToBePresentInElement_(WebElement, By, String, String)},
+   * evaluated by one script call per poll.
+   *
+   * @param parent the WebElement of a sub DOM, or null for the whole page
+   * @param locator used to find the element
+   * @param attributeName the attribute name
+   * @param attributeValue the value the attribute should contain
+   */
+  public static ExpectedCondition<Boolean> attributeValueToBePresentInElementByScript(
+      final WebElement parent, final By locator, final String attributeName,
+      final String attributeValue) {
+    return new WTFScriptCondition<Boolean>(ATTRIBUTE_SCRIPT, String.format(
+        "Attribute value ('%s') of the attribute name ('%s') of element located by %s",
+        attributeValue, attributeName, locator), parent, locator, attributeName,
+        attributeValue);
+  }
+
+  private static final String VALUES_SCRIPT = WTFScripts.script(""
+      + "var root = arguments[0], locators = arguments[1], properties = arguments[2];\n"
+      + "var rows = [];\n"
+      + "for (var i = 0; i < locators.length; i++) {\n"
+      + "  var e = wtf.first(root, locators[i][0], locators[i][1]);\n"
+      + "  if (!e) { return null; }\n"
+      + "  var row = [];\n"
+      + "  for (var j = 0; j < properties.length; j++) {\n"
+      + "    if (properties[j] === arguments[3]) {\n"
+      + "      row.push(wtf.shown(e) ? wtf.text(e) : '');\n"
+      + "    } else {\n"
+      + "      row.push(wtf.attribute(e, properties[j]));\n"
+      + "    }\n"
+      + "  }\n"
+      + "  rows.push(row);\n"
+      + "}\n"
+      + "return rows;");
+
+  /**
+   * An expectation for all the elements to be present, returning the given
+   * properties of each in one script call per poll.
+   *
+   * @param parent the WebElement of a sub DOM, or null for the whole page
+   * @param locators the locators by name
+   * @param properties the attribute names to read, {@link WTFUtil#TEXT} for
+   *          the visible text
+   * @return the values by name, then by property
+   */
+  public static ExpectedCondition<Map<String, Map<String, String>>> valuesOfElementsLocatedByScript(
+      final WebElement parent, final Map<String, By> locators, final List<String> properties) {
+    final List<List<String>> using = new ArrayList<List<String>>();
+    for (By locator : locators.values()) {
+      List<String> strategy = WTFScripts.locator(locator);
+      if (strategy == null) {
+        throw new IllegalArgumentException("Locator cannot be resolved by a script: " + locator);
+      }
+      using.add(strategy);
+    }
+    return new ExpectedCondition<Map<String, Map<String, String>>>() {
+      public Map<String, Map<String, String>> apply(WebDriver driver) {
+        List<?> rows;
         try {
-          String elementText = findElement(locator, driver).getAttribute(attributeName);
-          if (elementText != null) {
-            return elementText.contains(attributeValue);
-          } else {
-            return false;
-          }
+          rows = (List<?>) WTFScripts.execute(driver, VALUES_SCRIPT, parent, using, properties,
+              WTFUtil.TEXT);
         } catch (StaleElementReferenceException e) {
           return null;
         }
+        if (rows == null) {
+          return null;
+        }
+        Map<String, Map<String, String>> values = new LinkedHashMap<String, Map<String, String>>();
+        int i = 0;
+        for (String name : locators.keySet()) {
+          List<?> row = (List<?>) rows.get(i++);
+          Map<String, String> value = new LinkedHashMap<String, String>();
+          for (int j = 0; j < properties.size(); j++) {
+            Object property = row.get(j);
+            value.put(properties.get(j), property != null ? property.toString() : null);
+          }
+          values.put(name, value);
+        }
+        return values;
       }
 
       public String toString() {
-        return String.format(
-            "Attribute value ('%s') of the attribute name ('%s') of element located by %s",
-            attributeValue, attributeName, locator);
+        return "values " + properties + " of elements located by " + locators.values();
       }
     };
   }
 
   /**
-   * An expectation for checking if the given attribute value is present in a sub DOM and in the
-   * specified elements's attribute name.
+   * An expectation for any of the given conditions to be true, all of them
+   * evaluated at each poll, so that they share the time out of one wait. When
+   * every condition is evaluated by a script they are evaluated by a single
+   * script call per poll, and awaited in the page together in the PUSH wait
+   * mode.
+   *
+   * @param conditions the conditions, the first true of which is returned
+   * @return the first true condition, with its position and value
    */
-  public static ExpectedCondition<Boolean> attributeValueToBePresentInElement_(
-      final WebElement parent, final By locator, final String attributeName,
-      final String attributeValue) {
+  public static ExpectedCondition<WTFBranch> anyOf(final ExpectedCondition<?>... conditions) {
+    if (allByScript(conditions)) {
+      return new WTFScriptCondition<WTFBranch>(combine(conditions, false),
+          "any of " + Arrays.asList(conditions), scriptArgs(conditions)) {
+        WTFBranch convert(Object value) {
+          List<?> branch = (List<?>) value;
+          int index = ((Number) branch.get(0)).intValue();
+          return new WTFBranch(index, valueOf(conditions[index], branch.get(1)),
+              conditions[index]);
+        }
+      };
+    }
+    return new ExpectedCondition<WTFBranch>() {
+      public WTFBranch apply(WebDriver driver) {
+        for (int i = 0; i < conditions.length; i++) {
+          Object value = applySilent(conditions[i], driver);
+          if (value != null && !Boolean.FALSE.equals(value)) {
+            return new WTFBranch(i, value, conditions[i]);
+          }
+        }
+        return null;
+      }
 
-    return new ExpectedCondition<Boolean>() {
-      
-      public Boolean apply(WebDriver driver) {
-        try {
-          String elementText = findElement(locator, parent).getAttribute(attributeName);
-          if (elementText != null) {
-            return elementText.contains(attributeValue);
-          } else {
-            return false;
+      public String toString() {
+        return "any of " + Arrays.asList(conditions);
+      }
+    };
+  }
+
+  /**
+   * An expectation for all the given conditions to be true at the same poll,
+   * evaluated by a single script call per poll when every condition is
+   * evaluated by a script.
+   *
+   * @param conditions the conditions
+   * @return the values of the conditions, in order
+   */
+  public static ExpectedCondition<List<Object>> allOf(final ExpectedCondition<?>... conditions) {
+    if (allByScript(conditions)) {
+      return new WTFScriptCondition<List<Object>>(combine(conditions, true),
+          "all of " + Arrays.asList(conditions), scriptArgs(conditions)) {
+        List<Object> convert(Object value) {
+          List<Object> values = new ArrayList<Object>(conditions.length);
+          int i = 0;
+          for (Object branch : (List<?>) value) {
+            values.add(valueOf(conditions[i++], branch));
           }
-        } catch (StaleElementReferenceException e) {
-          return null;
+          return values;
         }
+      };
+    }
+    return new ExpectedCondition<List<Object>>() {
+      public List<Object> apply(WebDriver driver) {
+        List<Object> values = new ArrayList<Object>(conditions.length);
+        for (ExpectedCondition<?> condition : conditions) {
+          Object value = applySilent(condition, driver);
+          if (value == null || Boolean.FALSE.equals(value)) {
+            return null;
+          }
+          values.add(value);
+        }
+        return values;
       }
 
       public String toString() {
-        return String.format(
-            "Attribute value ('%s') of the attribute name ('%s') of element located by %s",
-            attributeValue, attributeName, locator);
+        return "all of " + Arrays.asList(conditions);
       }
     };
   }
+
+  /**
+   * @return the value of the condition, or null if the element is not found
+   */
+  private static Object applySilent(ExpectedCondition<?> condition, WebDriver driver) {
+    try {
+      return condition.apply(driver);
+    } catch (NotFoundException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return the value of a condition combined by script, as the condition
+   *         itself would return it, e.g. a WTFBranch for a nested anyOf
+   */
+  private static Object valueOf(ExpectedCondition<?> condition, Object value) {
+    return value != null ? ((WTFScriptCondition<?>) condition).convert(value) : null;
+  }
+
+  private static boolean allByScript(ExpectedCondition<?>[] conditions) {
+    if (conditions.length == 0) {
+      throw new IllegalArgumentException("At least one condition is needed");
+    }
+    for (ExpectedCondition<?> condition : conditions) {
+      if (!(condition instanceof WTFScriptCondition)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String combine(ExpectedCondition<?>[] conditions, boolean all) {
+    List<String> bodies = new ArrayList<String>(conditions.length);
+    for (ExpectedCondition<?> condition : conditions) {
+      bodies.add(WTFScripts.body(((WTFScriptCondition<?>) condition).getScript()));
+    }
+    return WTFScripts.combine(bodies, all);
+  }
+
+  private static Object[] scriptArgs(ExpectedCondition<?>[] conditions) {
+    List<Object> args = new ArrayList<Object>(conditions.length);
+    for (ExpectedCondition<?> condition : conditions) {
+      args.add(Arrays.asList(((WTFScriptCondition<?>) condition).getArgs()));
+    }
+    return new Object[] { args };
+  }
 }
@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+
+/**
+ * Logs the WebDriverExceptions raised while polling, at the level configured
+ * for the session. A failure is logged the first time it happens for a
+ * locator and exception type, then at most once every
+ * {@value #INTERVAL_IN_MILLIS} ms across all threads, with the number of
+ * similar failures left out. Messages are formatted only when a handler
+ * publishes them. When a {@link WTFWait} ends, the failures it left out are
+ * summed up in one record per locator and exception type.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+final class WTFFailureLog {
+
+  static final long INTERVAL_IN_MILLIS = 10000L;
+
+  /** Locators and exception types remembered before all are forgotten. */
+  private static final int MAX_KEYS = 1024;
+
+  private static final Logger log = Logger.getLogger(WTFExpectedConditions.class.getName());
+
+  private static final ConcurrentMap<Key, Window> WINDOWS = new ConcurrentHashMap<Key, Window>();
+
+  private static final ThreadLocal<Wait> WAIT = new ThreadLocal<Wait>() {
+    protected Wait initialValue() {
+      return new Wait();
+    }
+  };
+
+  private WTFFailureLog() {
+    // Utility class
+  }
+
+  /**
+   * Logs the failure, unless a similar one was logged less than
+   * {@value #INTERVAL_IN_MILLIS} ms ago.
+   */
+  static void failure(WebDriver driver, By by, WebDriverException e) {
+    Level level = WTFConfig.of(driver).getLogLevel();
+    if (level == Level.OFF || !log.isLoggable(level)) {
+      return;
+    }
+    Key key = new Key(by, e.getClass());
+    Window window = WINDOWS.get(key);
+    if (window == null) {
+      if (WINDOWS.size() >= MAX_KEYS) {
+        WINDOWS.clear();
+      }
+      Window created = new Window();
+      window = WINDOWS.putIfAbsent(key, created);
+      if (window == null) {
+        window = created;
+      }
+    }
+    int left = window.open(System.nanoTime());
+    Wait wait = WAIT.get();
+    if (wait.depth > 0) {
+      wait.count(key, level, left < 0);
+    }
+    if (left < 0) {
+      return;
+    }
+    LogRecord record = new LogRecord(level, left == 0
+        ? "WebDriverException thrown by findElement({0})"
+        : "WebDriverException thrown by findElement({0}), {1} similar not logged");
+    record.setParameters(new Object[] { by, left });
+    record.setThrown(e);
+    record.setLoggerName(log.getName());
+    log.log(record);
+  }
+
+  /**
+   * Called when a wait starts polling.
+   */
+  static void waitStarted() {
+    WAIT.get().depth++;
+  }
+
+  /**
+   * Called when a wait is over; sums up the failures it did not log.
+   *
+   * @param condition
+   *          the condition waited for
+   * @param timedOut
+   *          true if the wait timed out
+   */
+  static void waitEnded(Object condition, boolean timedOut) {
+    Wait wait = WAIT.get();
+    if (--wait.depth > 0 || wait.failures == null) {
+      return;
+    }
+    for (Map.Entry<Key, Failures> entry : wait.failures.entrySet()) {
+      Failures failures = entry.getValue();
+      if (failures.left > 0 && log.isLoggable(failures.level)) {
+        LogRecord record = new LogRecord(failures.level,
+            "{0} thrown {1} times by findElement({2}) while waiting for {3}{4}, {5} not logged");
+        record.setParameters(new Object[] { entry.getKey().type.getSimpleName(),
+            failures.count, entry.getKey().by, condition, timedOut ? " (timed out)" : "",
+            failures.left });
+        record.setLoggerName(log.getName());
+        log.log(record);
+      }
+    }
+    wait.failures = null;
+  }
+
+  private static final class Key {
+
+    private final By by;
+    private final Class<?> type;
+
+    Key(By by, Class<?> type) {
+      this.by = by;
+      this.type = type;
+    }
+
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return type == other.type && (by == other.by || by != null && by.equals(other.by));
+    }
+
+    public int hashCode() {
+      return 31 * type.hashCode() + (by != null ? by.hashCode() : 0);
+    }
+  }
+
+  /**
+   * When the failures of a key may be logged next, and how many were left
+   * out since the last one logged.
+   */
+  private static final class Window {
+
+    private static final long INTERVAL_IN_NANOS =
+        TimeUnit.MILLISECONDS.toNanos(INTERVAL_IN_MILLIS);
+
+    private final AtomicLong next = new AtomicLong(System.nanoTime());
+    private final AtomicInteger left = new AtomicInteger();
+
+    /**
+     * @return the number of failures left out since the last one logged if
+     *         this one may be logged, otherwise -1
+     */
+    int open(long now) {
+      long allowed = next.get();
+      if (now - allowed < 0 || !next.compareAndSet(allowed, now + INTERVAL_IN_NANOS)) {
+        left.incrementAndGet();
+        return -1;
+      }
+      return left.getAndSet(0);
+    }
+  }
+
+  /** The failures of the waits of a thread, kept from one wait to the next. */
+  private static final class Wait {
+
+    private int depth;
+    private Map<Key, Failures> failures;
+
+    void count(Key key, Level level, boolean left) {
+      if (failures == null) {
+        failures = new LinkedHashMap<Key, Failures>();
+      }
+      Failures counted = failures.get(key);
+      if (counted == null) {
+        counted = new Failures(level);
+        failures.put(key, counted);
+      }
+      counted.count++;
+      if (left) {
+        counted.left++;
+      }
+    }
+  }
+
+  private static final class Failures {
+
+    private final Level level;
+    private int count;
+    private int left;
+
+    Failures(Level level) {
+      this.level = level;
+    }
+  }
+}
@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.Select;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.wtf.utils.WTFMetrics.Operation;
+
+/**
+ * WTF form. Fills many fields of a form at once:
+ *
+ * <pre>
+ * new WTFForm(driver).set(By.id("name"), "John").set(By.id("country"), "France")
+ *     .set(By.id("terms"), true).keys(By.id("card"), "4111111111111111").fill();
+ * </pre>
+ *
+ * Text inputs, text areas and editable elements get the text, selects the
+ * option with the given value or text, check boxes and radio buttons the
+ * given checked state. Consecutive fields are filled by one script once all
+ * of them are shown and enabled, firing the input, change and blur events
+ * frameworks listen to. Fields given through {@link #keys(By, String)}, and
+ * fields a script cannot locate, are cleared and typed into through
+ * WebDriver instead.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public final class WTFForm {
+
+  /**
+   * Finds every field, answering null until all are shown and enabled, then
+   * sets them and answers the fields it could not set.
+   */
+  private static final String FILL_SCRIPT = WTFScripts.script(""
+      + "var root = arguments[0], fields = arguments[1], found = [], errors = [];\n"
+      + "for (var i = 0; i < fields.length; i++) {\n"
+      + "  var e = wtf.first(root, fields[i][0], fields[i][1]);\n"
+      + "  if (!e || !wtf.shown(e) || !wtf.enabled(e)) { return null; }\n"
+      + "  found.push(e);\n"
+      + "}\n"
+      + "var fire = function(e, type) {\n"
+      + "  var event;\n"
+      + "  if (typeof Event === 'function') {\n"
+      + "    event = new Event(type, {bubbles: true});\n"
+      + "  } else {\n"
+      + "    event = document.createEvent('HTMLEvents');\n"
+      + "    event.initEvent(type, true, false);\n"
+      + "  }\n"
+      + "  e.dispatchEvent(event);\n"
+      + "};\n"
+      + "for (var i = 0; i < found.length; i++) {\n"
+      + "  var e = found[i], value = fields[i][2], tag = e.tagName.toLowerCase();\n"
+      + "  var type = String(e.type || '').toLowerCase();\n"
+      + "  if (tag === 'select') {\n"
+      + "    var chosen = null;\n"
+      + "    for (var j = 0; j < e.options.length && !chosen; j++) {\n"
+      + "      var o = e.options[j];\n"
+      + "      if (o.value === value || wtf.text(o) === value) { chosen = o; }\n"
+      + "    }\n"
+      + "    if (!chosen) { errors.push(i); continue; }\n"
+      + "    if (!chosen.selected) {\n"
+      + "      chosen.selected = true;\n"
+      + "      fire(e, 'input');\n"
+      + "      fire(e, 'change');\n"
+      + "    }\n"
+      + "  } else if (type === 'checkbox' || type === 'radio') {\n"
+      + "    if (e.checked !== (value === 'true')) { e.click(); }\n"
+      + "  } else {\n"
+      + "    if (e.focus) { e.focus(); }\n"
+      + "    if (e.isContentEditable) {\n"
+      + "      e.textContent = value;\n"
+      + "    } else {\n"
+      + "      var view = wtf.view(e);\n"
+      + "      var proto = tag === 'textarea' ? view.HTMLTextAreaElement : view.HTMLInputElement;\n"
+      + "      var property = proto && Object.getOwnPropertyDescriptor\n"
+      + "          ? Object.getOwnPropertyDescriptor(proto.prototype, 'value') : null;\n"
+      + "      if (property && property.set) {\n"
+      + "        property.set.call(e, value);\n"
+      + "      } else {\n"
+      + "        e.value = value;\n"
+      + "      }\n"
+      + "    }\n"
+      + "    fire(e, 'input');\n"
+      + "    fire(e, 'change');\n"
+      + "    if (e.blur) { e.blur(); }\n"
+      + "  }\n"
+      + "}\n"
+      + "return errors;");
+
+  private final WebDriver driver;
+  private final WebDriverWait wait;
+  private final WebElement parent;
+  private final List<Field> fields = new ArrayList<Field>();
+
+  /**
+   * @param driver
+   *          the WebDriver
+   */
+  public WTFForm(WebDriver driver) {
+    this(driver, null, null);
+  }
+
+  /**
+   * @param driver
+   *          the WebDriver
+   * @param wait
+   *          the wait for the fields, or null for the session wait
+   * @param parent
+   *          the sub DOM to look, or null for the whole page
+   */
+  public WTFForm(WebDriver driver, WebDriverWait wait, WebElement parent) {
+    this.driver = driver;
+    this.wait = wait;
+    this.parent = parent;
+  }
+
+  /**
+   * @param by
+   *          locator used to find the field
+   * @param value
+   *          the text, option value or text, or checked state of the field
+   */
+  public WTFForm set(By by, Object value) {
+    fields.add(new Field(by, String.valueOf(value), false));
+    return this;
+  }
+
+  /**
+   * Clears the field and types the text into it through WebDriver, for the
+   * fields that need real keystrokes.
+   *
+   * @param by
+   *          locator used to find the field
+   */
+  public WTFForm keys(By by, String text) {
+    fields.add(new Field(by, text, true));
+    return this;
+  }
+
+  /**
+   * Fills the fields in order.
+   *
+   * @throws NoSuchElementException
+   *           if a select has no option with the given value or text
+   */
+  public void fill() {
+    WTFMetrics.enter(Operation.FILL_FORM);
+    try {
+      WebDriverWait wait = this.wait != null ? this.wait : WTFSession.of(driver).getWait(driver);
+      List<Field> batch = new ArrayList<Field>();
+      for (Field field : fields) {
+        if (!field.keys && WTFScripts.supports(driver, field.by)) {
+          batch.add(field);
+          continue;
+        }
+        fillByScript(wait, batch);
+        batch.clear();
+        fillNatively(wait, field);
+      }
+      fillByScript(wait, batch);
+    } finally {
+      WTFMetrics.exit();
+    }
+  }
+
+  private void fillByScript(WebDriverWait wait, List<Field> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    List<By> locators = new ArrayList<By>();
+    List<List<String>> values = new ArrayList<List<String>>();
+    for (Field field : batch) {
+      locators.add(field.by);
+      List<String> value = new ArrayList<String>(WTFScripts.locator(field.by));
+      value.add(field.value);
+      values.add(value);
+    }
+    List<?> errors = wait.until(new WTFScriptCondition<List<?>>(FILL_SCRIPT,
+        "fields located by " + locators + " to be shown and enabled",
+        new Object[] { parent, values }));
+    if (!errors.isEmpty()) {
+      Field field = batch.get(((Number) errors.get(0)).intValue());
+      throw new NoSuchElementException(String.format(
+          "Cannot locate option with value or text: %s in %s", field.value, field.by));
+    }
+  }
+
+  private void fillNatively(WebDriverWait wait, Field field) {
+    WebElement element = wait.until(WTFUtil.visibilityCondition(driver, parent, field.by));
+    String type = String.valueOf(element.getAttribute("type")).toLowerCase();
+    if (!field.keys && "select".equalsIgnoreCase(element.getTagName())) {
+      Select select = new Select(element);
+      try {
+        select.selectByValue(field.value);
+      } catch (NoSuchElementException e) {
+        select.selectByVisibleText(field.value);
+      }
+    } else if (!field.keys && ("checkbox".equals(type) || "radio".equals(type))) {
+      if (element.isSelected() != Boolean.parseBoolean(field.value)) {
+        element.click();
+      }
+    } else {
+      element.clear();
+      element.sendKeys(field.value);
+    }
+  }
+
+  private static final class Field {
+
+    private final By by;
+    private final String value;
+    private final boolean keys;
+
+    Field(By by, String value, boolean keys) {
+      this.by = by;
+      this.value = value;
+      this.keys = keys;
+    }
+  }
+}
@@ -0,0 +1,419 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * WTF metrics. Counts and times every WTFUtil operation: calls, latency
+ * percentiles, polls, WebDriver commands, time outs and stale element
+ * retries. Only the outermost operation of a thread is recorded, so that
+ * getValue is not counted again as getAttributeValue and findElement.
+ * <p/>
+ * Recording costs a thread local lookup and a few atomic additions per
+ * operation and allocates nothing, so it is on by default. The metrics are
+ * read through {@link #of(Operation)}, {@link #report()}, or JMX once the
+ * MBeans are registered:
+ *
+ * <pre>
+ * WTFMetrics.registerMBeans();
+ * ...
+ * System.out.println(WTFMetrics.report());
+ * </pre>
+ *
+ * Commands are counted for the scripts the utils run, and for every
+ * command of a driver decorated by {@link WTFCommandCounter}.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public final class WTFMetrics {
+
+  /**
+   * The WTFUtil operations, one per method name, the performing of a
+   * {@link WTFActionBatch} and the taking or refreshing of a
+   * {@link WTFSnapshot}. Filling a {@link WTFForm} counts as fillForm.
+   */
+  public enum Operation {
+    CLICK, PRESENT, NOT_PRESENT, VISIBLE, INVISIBLE, FIND_ELEMENT, FIND_ELEMENTS, SELECTED,
+    NOT_SELECTED, TYPE, CLEAR, TEXT_PRESENT, TEXT_NOT_PRESENT, ATTRIBUTE_VALUE_PRESENT,
+    GET_ATTRIBUTE_VALUE, GET_TEXT, GET_VALUE, READ_ALL, FILL_FORM, WAIT_FOR_ANY, WAIT_FOR_ALL,
+    ANY_VISIBLE, GET_SELECT_ELEMENT, HOVER, SCROLL_NON_BROWSER_SCROLLERS_VERTICALLY,
+    SCROLL_NON_BROWSER_SCROLLERS_HORIZONTALLY, SCROLL_TO_BOTTOM, SCROLL_TOP,
+    SELECT_OPTION_FROM_DROP_DOWN, SELECT_OPTION_RANDOMLY_FROM_MENU_LIST, ACTION_BATCH, SNAPSHOT;
+
+    private final String methodName;
+
+    private Operation() {
+      StringBuilder name = new StringBuilder();
+      for (String word : name().toLowerCase().split("_")) {
+        name.append(name.length() == 0 ? word
+            : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+      }
+      this.methodName = name.toString();
+    }
+
+    /**
+     * @return the name of the WTFUtil method
+     */
+    public String toString() {
+      return methodName;
+    }
+  }
+
+  /** Latency buckets: two per power of two microseconds. */
+  static final int BUCKETS = 80;
+
+  private static final OperationStats[] STATS = new OperationStats[Operation.values().length];
+
+  static {
+    for (Operation operation : Operation.values()) {
+      STATS[operation.ordinal()] = new OperationStats(operation);
+    }
+  }
+
+  private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<Scope>() {
+    protected Scope initialValue() {
+      return new Scope();
+    }
+  };
+
+  private static final AtomicLong CALLS = new AtomicLong();
+
+  private static volatile boolean enabled = true;
+  private static boolean registered;
+
+  private WTFMetrics() {
+    // Utility class
+  }
+
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * @param enabled
+   *          false to stop recording, e.g. for a benchmark baseline
+   */
+  public static void setEnabled(boolean enabled) {
+    WTFMetrics.enabled = enabled;
+  }
+
+  /**
+   * @return the metrics of the given operation
+   */
+  public static OperationStats of(Operation operation) {
+    return STATS[operation.ordinal()];
+  }
+
+  /**
+   * Zeroes the metrics of every operation.
+   */
+  public static void reset() {
+    for (OperationStats stats : STATS) {
+      stats.reset();
+    }
+  }
+
+  /**
+   * @return a table of the operations called so far
+   */
+  public static String report() {
+    StringBuilder report = new StringBuilder(String.format(
+        "%-40s %8s %12s %10s %10s %8s %9s %9s %6s%n", "operation", "calls", "total ms",
+        "p50 ms", "p99 ms", "polls", "commands", "timeouts", "stale"));
+    for (OperationStats stats : STATS) {
+      if (stats.getCalls() > 0) {
+        report.append(String.format("%-40s %8d %12.1f %10.2f %10.2f %8d %9d %9d %6d%n",
+            stats.getOperation(), stats.getCalls(), stats.getTotalMillis(),
+            stats.getMedianMillis(), stats.getPercentile99Millis(), stats.getPolls(),
+            stats.getCommands(), stats.getTimeouts(), stats.getStaleRetries()));
+      }
+    }
+    return report.toString();
+  }
+
+  /**
+   * Registers one MBean per operation with the platform MBean server. Calling
+   * it again does nothing.
+   */
+  public static synchronized void registerMBeans() {
+    if (registered) {
+      return;
+    }
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      for (OperationStats stats : STATS) {
+        ObjectName name = new ObjectName("org.wtf.utils:type=WTFMetrics,operation="
+            + stats.getOperation());
+        if (!server.isRegistered(name)) {
+          server.registerMBean(stats, name);
+        }
+      }
+    } catch (JMException e) {
+      throw new IllegalStateException("Cannot register the WTF metrics", e);
+    }
+    registered = true;
+  }
+
+  /**
+   * Starts an operation on the current thread. Must be paired with
+   * {@link #exit()} in a finally block.
+   */
+  static void enter(Operation operation) {
+    Scope scope = SCOPE.get();
+    if (scope.depth++ == 0) {
+      scope.operation = enabled ? operation : null;
+      scope.call = scope.operation != null ? CALLS.incrementAndGet() : 0;
+      scope.polls = 0;
+      scope.commands = 0;
+      scope.timeouts = 0;
+      scope.staleRetries = 0;
+      scope.start = System.nanoTime();
+    }
+  }
+
+  /**
+   * Ends the operation of the current thread, recording it if it is the
+   * outermost one.
+   */
+  static void exit() {
+    Scope scope = SCOPE.get();
+    if (--scope.depth == 0 && scope.operation != null) {
+      STATS[scope.operation.ordinal()].record(System.nanoTime() - scope.start, scope.polls,
+          scope.commands, scope.timeouts, scope.staleRetries);
+      scope.operation = null;
+    }
+  }
+
+  /**
+   * @return the operation the current thread is in, or null
+   */
+  static Operation current() {
+    return SCOPE.get().operation;
+  }
+
+  /**
+   * @return a number telling the operation the current thread is in from any
+   *         other, or 0 outside operations
+   */
+  static long currentCall() {
+    Scope scope = SCOPE.get();
+    return scope.operation != null ? scope.call : 0;
+  }
+
+  /**
+   * @return the time since the outermost operation of the current thread
+   *         started, 0 outside operations
+   */
+  static long operationElapsedMillis() {
+    Scope scope = SCOPE.get();
+    return scope.depth > 0 ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - scope.start) : 0;
+  }
+
+  static void poll() {
+    Scope scope = SCOPE.get();
+    if (scope.operation != null) {
+      scope.polls++;
+    }
+  }
+
+  static void command() {
+    Scope scope = SCOPE.get();
+    if (scope.operation != null) {
+      scope.commands++;
+    }
+  }
+
+  /**
+   * Counts a command sent to the given driver, unless a
+   * {@link WTFCommandCounter} counts it already.
+   */
+  static void command(WebDriver driver) {
+    if (!WTFCommandCounter.isCounting(driver)) {
+      command();
+    }
+  }
+
+  static void timeout() {
+    Scope scope = SCOPE.get();
+    if (scope.operation != null) {
+      scope.timeouts++;
+    }
+  }
+
+  static void staleRetry() {
+    Scope scope = SCOPE.get();
+    if (scope.operation != null) {
+      scope.staleRetries++;
+    }
+  }
+
+  static int bucket(long micros) {
+    if (micros < 2) {
+      return (int) Math.max(micros, 0);
+    }
+    int msb = 63 - Long.numberOfLeadingZeros(micros);
+    int bucket = 2 * msb + (int) ((micros >>> (msb - 1)) & 1);
+    return Math.min(bucket, BUCKETS - 1);
+  }
+
+  /**
+   * @return the smallest time in microseconds above the bucket
+   */
+  static long upperBound(int bucket) {
+    if (bucket < 2) {
+      return bucket + 1;
+    }
+    int msb = bucket / 2;
+    return bucket % 2 == 0 ? 3L << (msb - 1) : 1L << (msb + 1);
+  }
+
+  /**
+   * The operation of a thread, counted in plain fields and added to the
+   * shared counters once when it ends.
+   */
+  private static final class Scope {
+
+    private int depth;
+    private Operation operation;
+    private long call;
+    private long start;
+    private long polls;
+    private long commands;
+    private long timeouts;
+    private long staleRetries;
+  }
+
+  /**
+   * The metrics of an operation, updated without locks.
+   */
+  public static final class OperationStats implements WTFOperationMXBean {
+
+    private final Operation operation;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong nanos = new AtomicLong();
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong commands = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong staleRetries = new AtomicLong();
+    private final AtomicLongArray latency = new AtomicLongArray(BUCKETS);
+
+    private OperationStats(Operation operation) {
+      this.operation = operation;
+    }
+
+    void record(long elapsedNanos, long polls, long commands, long timeouts,
+        long staleRetries) {
+      calls.incrementAndGet();
+      nanos.addAndGet(elapsedNanos);
+      latency.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(elapsedNanos)));
+      if (polls != 0) {
+        this.polls.addAndGet(polls);
+      }
+      if (commands != 0) {
+        this.commands.addAndGet(commands);
+      }
+      if (timeouts != 0) {
+        this.timeouts.addAndGet(timeouts);
+      }
+      if (staleRetries != 0) {
+        this.staleRetries.addAndGet(staleRetries);
+      }
+    }
+
+    public String getOperation() {
+      return operation.toString();
+    }
+
+    public long getCalls() {
+      return calls.get();
+    }
+
+    public double getTotalMillis() {
+      return nanos.get() / 1e6;
+    }
+
+    public double getMeanMillis() {
+      long count = calls.get();
+      return count > 0 ? getTotalMillis() / count : 0;
+    }
+
+    public double getMedianMillis() {
+      return getPercentileMillis(0.5);
+    }
+
+    public double getPercentile90Millis() {
+      return getPercentileMillis(0.9);
+    }
+
+    public double getPercentile99Millis() {
+      return getPercentileMillis(0.99);
+    }
+
+    /**
+     * @param fraction
+     *          the percentile, between 0 and 1
+     * @return the upper bound of the bucket holding the percentile, which is
+     *         at most a third above the exact value
+     */
+    public double getPercentileMillis(double fraction) {
+      long[] counts = new long[BUCKETS];
+      long total = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        counts[i] = latency.get(i);
+        total += counts[i];
+      }
+      if (total == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(total * fraction));
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return upperBound(i) / 1e3;
+        }
+      }
+      return upperBound(BUCKETS - 1) / 1e3;
+    }
+
+    public long getPolls() {
+      return polls.get();
+    }
+
+    public long getCommands() {
+      return commands.get();
+    }
+
+    public long getTimeouts() {
+      return timeouts.get();
+    }
+
+    public long getStaleRetries() {
+      return staleRetries.get();
+    }
+
+    public void reset() {
+      calls.set(0);
+      nanos.set(0);
+      polls.set(0);
+      commands.set(0);
+      timeouts.set(0);
+      staleRetries.set(0);
+      for (int i = 0; i < BUCKETS; i++) {
+        latency.set(i, 0);
+      }
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+/**
+ * JMX view of the metrics of one WTFUtil operation, registered by
+ * {@link WTFMetrics#registerMBeans()} as
+ * {@code org.wtf.utils:type=WTFMetrics,operation=<method name>}.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public interface WTFOperationMXBean {
+
+  /**
+   * @return the WTFUtil method
+   */
+  String getOperation();
+
+  /**
+   * @return the number of completed calls, including failed ones
+   */
+  long getCalls();
+
+  /**
+   * @return the time spent in the calls
+   */
+  double getTotalMillis();
+
+  double getMeanMillis();
+
+  double getMedianMillis();
+
+  double getPercentile90Millis();
+
+  double getPercentile99Millis();
+
+  /**
+   * @return the number of times a condition was evaluated
+   */
+  long getPolls();
+
+  /**
+   * @return the number of WebDriver commands issued
+   */
+  long getCommands();
+
+  /**
+   * @return the number of calls that timed out
+   */
+  long getTimeouts();
+
+  /**
+   * @return the number of times a stale element was looked up again
+   */
+  long getStaleRetries();
+
+  /**
+   * Zeroes the metrics of the operation.
+   */
+  void reset();
+}
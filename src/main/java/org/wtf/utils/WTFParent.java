@@ -0,0 +1,315 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.internal.Coordinates;
+import org.openqa.selenium.internal.Locatable;
+import org.openqa.selenium.internal.WrapsElement;
+
+/**
+ * WTF parent. A parent element for the sub DOM overloads of WTFUtil that
+ * remembers the locators it was found by, so that it outlives the page
+ * rendering it again:
+ *
+ * <pre>
+ * WTFParent row = WTFParent.of(driver, By.id("orders")).within(By.className("row"));
+ * WTFUtil.click(driver, row, By.linkText("Edit"));
+ * </pre>
+ *
+ * The element is located on first use, each locator within the element of
+ * the previous one, by a single script call when the driver runs scripts and
+ * every locator can be resolved by a script. Staleness costs no extra
+ * command: when a call on the element fails because it went stale, the
+ * element is located again and the call repeated once. When the parent is not
+ * in the page, it has no children, so that a wait for a child keeps polling
+ * until the parent is back.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public final class WTFParent implements WebElement, WrapsElement, Locatable {
+
+  private static final String LOCATE_SCRIPT = WTFScripts.script(""
+      + "var chain = arguments[0], e = null;\n"
+      + "for (var i = 0; i < chain.length; i++) {\n"
+      + "  e = wtf.first(e, chain[i][0], chain[i][1]);\n"
+      + "  if (!e) { return null; }\n"
+      + "}\n"
+      + "return e;");
+
+  /**
+   * A call on the element, repeated on the element located again when it
+   * went stale.
+   */
+  private interface Call<T> {
+    T on(WebElement element);
+  }
+
+  private final WebDriver driver;
+  private final List<By> chain;
+  private final List<List<String>> using;
+  private volatile WebElement element;
+
+  private WTFParent(WebDriver driver, List<By> chain) {
+    this.driver = driver;
+    this.chain = chain;
+    this.using = using(driver, chain);
+  }
+
+  /**
+   * @param driver
+   *          the WebDriver
+   * @param chain
+   *          the locators of the parent, each within the element of the
+   *          previous one
+   * @return the parent, located on first use
+   */
+  public static WTFParent of(WebDriver driver, By... chain) {
+    if (chain.length == 0) {
+      throw new IllegalArgumentException("At least one locator is needed");
+    }
+    return new WTFParent(driver, Collections.unmodifiableList(Arrays.asList(chain.clone())));
+  }
+
+  /**
+   * @param by
+   *          the locator of an element within this one
+   * @return the parent located by the locators of this one, then the given
+   *         one
+   */
+  public WTFParent within(By by) {
+    List<By> nested = new ArrayList<By>(chain);
+    nested.add(by);
+    return new WTFParent(driver, Collections.unmodifiableList(nested));
+  }
+
+  /**
+   * @return the locators of the parent, outermost first
+   */
+  public List<By> getChain() {
+    return chain;
+  }
+
+  /**
+   * @return the element, located if needed
+   * @throws NoSuchElementException
+   *           if the parent is not in the page
+   */
+  public WebElement getWrappedElement() {
+    WebElement current = element;
+    if (current == null) {
+      current = locate();
+      if (current == null) {
+        throw new NoSuchElementException("Cannot locate the " + this);
+      }
+      element = current;
+    }
+    return current;
+  }
+
+  /**
+   * Forgets the element once it is known to be stale, so that the next call
+   * locates it again.
+   */
+  void forget() {
+    element = null;
+  }
+
+  private WebElement locate() {
+    if (using != null) {
+      return (WebElement) WTFScripts.execute(driver, LOCATE_SCRIPT, using);
+    }
+    SearchContext context = driver;
+    for (By by : chain) {
+      List<WebElement> found = context.findElements(by);
+      if (found.isEmpty()) {
+        return null;
+      }
+      context = found.get(0);
+    }
+    return (WebElement) context;
+  }
+
+  /**
+   * @return the strategies and values of the locators, or null when the
+   *         parent can only be located through WebDriver
+   */
+  private static List<List<String>> using(WebDriver driver, List<By> chain) {
+    if (!(driver instanceof JavascriptExecutor)) {
+      return null;
+    }
+    List<List<String>> using = new ArrayList<List<String>>(chain.size());
+    for (By by : chain) {
+      List<String> strategy = WTFScripts.locator(by);
+      if (strategy == null) {
+        return null;
+      }
+      using.add(strategy);
+    }
+    return using;
+  }
+
+  private <T> T call(Call<T> call) {
+    WebElement current = getWrappedElement();
+    try {
+      return call.on(current);
+    } catch (StaleElementReferenceException e) {
+      if (element == current) {
+        element = null;
+      }
+      WTFMetrics.staleRetry();
+      return call.on(getWrappedElement());
+    }
+  }
+
+  public List<WebElement> findElements(final By by) {
+    try {
+      return call(new Call<List<WebElement>>() {
+        public List<WebElement> on(WebElement element) {
+          return element.findElements(by);
+        }
+      });
+    } catch (NoSuchElementException e) {
+      return Collections.emptyList();
+    }
+  }
+
+  public WebElement findElement(final By by) {
+    return call(new Call<WebElement>() {
+      public WebElement on(WebElement element) {
+        return element.findElement(by);
+      }
+    });
+  }
+
+  public void click() {
+    call(new Call<Void>() {
+      public Void on(WebElement element) {
+        element.click();
+        return null;
+      }
+    });
+  }
+
+  public void submit() {
+    call(new Call<Void>() {
+      public Void on(WebElement element) {
+        element.submit();
+        return null;
+      }
+    });
+  }
+
+  public void sendKeys(final CharSequence... keysToSend) {
+    call(new Call<Void>() {
+      public Void on(WebElement element) {
+        element.sendKeys(keysToSend);
+        return null;
+      }
+    });
+  }
+
+  public void clear() {
+    call(new Call<Void>() {
+      public Void on(WebElement element) {
+        element.clear();
+        return null;
+      }
+    });
+  }
+
+  public String getTagName() {
+    return call(new Call<String>() {
+      public String on(WebElement element) {
+        return element.getTagName();
+      }
+    });
+  }
+
+  public String getAttribute(final String name) {
+    return call(new Call<String>() {
+      public String on(WebElement element) {
+        return element.getAttribute(name);
+      }
+    });
+  }
+
+  public boolean isSelected() {
+    return call(new Call<Boolean>() {
+      public Boolean on(WebElement element) {
+        return element.isSelected();
+      }
+    });
+  }
+
+  public boolean isEnabled() {
+    return call(new Call<Boolean>() {
+      public Boolean on(WebElement element) {
+        return element.isEnabled();
+      }
+    });
+  }
+
+  public String getText() {
+    return call(new Call<String>() {
+      public String on(WebElement element) {
+        return element.getText();
+      }
+    });
+  }
+
+  public boolean isDisplayed() {
+    return call(new Call<Boolean>() {
+      public Boolean on(WebElement element) {
+        return element.isDisplayed();
+      }
+    });
+  }
+
+  public Point getLocation() {
+    return call(new Call<Point>() {
+      public Point on(WebElement element) {
+        return element.getLocation();
+      }
+    });
+  }
+
+  public Dimension getSize() {
+    return call(new Call<Dimension>() {
+      public Dimension on(WebElement element) {
+        return element.getSize();
+      }
+    });
+  }
+
+  public String getCssValue(final String propertyName) {
+    return call(new Call<String>() {
+      public String on(WebElement element) {
+        return element.getCssValue(propertyName);
+      }
+    });
+  }
+
+  public Coordinates getCoordinates() {
+    return ((Locatable) getWrappedElement()).getCoordinates();
+  }
+
+  public String toString() {
+    return "parent located by " + chain;
+  }
+}
@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.util.Random;
+
+/**
+ * WTF polling. Decides how long a {@link WTFWait} sleeps between two polls of
+ * its condition. Strategies are immutable and shared by every wait of a
+ * session, across threads.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public abstract class WTFPolling {
+
+  private static final Random RANDOM = new Random();
+
+  /**
+   * Returns the delay before the given poll.
+   *
+   * @param poll
+   *          the number of polls already made, starting at 1 for the delay
+   *          after the first one
+   * @return the delay in milliseconds
+   */
+  public abstract long delayInMillis(int poll);
+
+  /**
+   * Polls at a fixed interval, like WebDriverWait does.
+   *
+   * @param intervalInMillis
+   *          the interval between two polls
+   */
+  public static WTFPolling fixed(final long intervalInMillis) {
+    return new WTFPolling() {
+      public long delayInMillis(int poll) {
+        return intervalInMillis;
+      }
+
+      public String toString() {
+        return "fixed polling every " + intervalInMillis + " ms";
+      }
+    };
+  }
+
+  /**
+   * Polls after an initial delay that grows by the given factor up to a cap.
+   * Each delay is spread randomly by the jitter fraction so sessions started
+   * together do not poll the grid in lock step.
+   *
+   * @param initialInMillis
+   *          the delay after the first poll
+   * @param factor
+   *          the growth of the delay from one poll to the next
+   * @param maxInMillis
+   *          the largest delay
+   * @param jitter
+   *          the random spread, between 0 (none) and 1 (plus or minus 100%)
+   */
+  public static WTFPolling backoff(final long initialInMillis, final double factor,
+      final long maxInMillis, final double jitter) {
+    if (initialInMillis < 0 || factor < 1 || maxInMillis < initialInMillis
+        || jitter < 0 || jitter > 1) {
+      throw new IllegalArgumentException(String.format(
+          "Invalid backoff: initial %d ms, factor %s, max %d ms, jitter %s",
+          initialInMillis, factor, maxInMillis, jitter));
+    }
+    return new WTFPolling() {
+      public long delayInMillis(int poll) {
+        double delay = initialInMillis * Math.pow(factor, Math.max(0, poll - 1));
+        delay = Math.min(delay, maxInMillis);
+        if (jitter > 0) {
+          delay *= 1 + jitter * (2 * RANDOM.nextDouble() - 1);
+        }
+        return Math.max(0L, Math.round(delay));
+      }
+
+      public String toString() {
+        return String.format("backoff polling from %d ms by %s up to %d ms", initialInMillis,
+            factor, maxInMillis);
+      }
+    };
+  }
+
+  /**
+   * Polls after 5 ms, doubling the delay up to one second with 20% jitter.
+   * Fast conditions return within a few milliseconds and slow ones cost a
+   * handful of remote calls per second.
+   */
+  public static WTFPolling backoff() {
+    return backoff(5L, 2.0, 1000L, 0.2);
+  }
+}
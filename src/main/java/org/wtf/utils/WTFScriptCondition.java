@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+
+/**
+ * A condition answered by a single script call per poll. The script is
+ * called with the parent (or null for the document), the locator strategy,
+ * the locator value and the extra arguments of the condition. A
+ * {@link WTFParent} found stale is located again at the next poll.
+ * Conditions of the same class are equal when their scripts and arguments
+ * are.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+class WTFScriptCondition<T> implements ExpectedCondition<T> {
+
+  private final String script;
+  private final String description;
+  private final Object[] args;
+  private String pushScript;
+
+  WTFScriptCondition(String script, String description, WebElement parent, By locator,
+      Object... extra) {
+    List<String> using = WTFScripts.locator(locator);
+    if (using == null) {
+      throw new IllegalArgumentException("Locator cannot be resolved by a script: " + locator);
+    }
+    this.script = script;
+    this.description = description;
+    this.args = new Object[3 + extra.length];
+    this.args[0] = parent;
+    this.args[1] = using.get(0);
+    this.args[2] = using.get(1);
+    System.arraycopy(extra, 0, this.args, 3, extra.length);
+  }
+
+  /**
+   * @param args
+   *          the arguments the script is called with
+   */
+  WTFScriptCondition(String script, String description, Object[] args) {
+    this.script = script;
+    this.description = description;
+    this.args = args;
+  }
+
+  public T apply(WebDriver driver) {
+    try {
+      Object value = WTFScripts.execute(driver, script, args);
+      return value != null ? convert(value) : null;
+    } catch (StaleElementReferenceException e) {
+      for (Object arg : args) {
+        if (arg instanceof WTFParent) {
+          ((WTFParent) arg).forget();
+        }
+      }
+      return null;
+    }
+  }
+
+  /**
+   * @return the value of the condition, given the non null value returned
+   *         by the script
+   */
+  @SuppressWarnings("unchecked")
+  T convert(Object value) {
+    return (T) value;
+  }
+
+  String getScript() {
+    return script;
+  }
+
+  Object[] getArgs() {
+    return args;
+  }
+
+  /**
+   * Waits in the page until the condition is true, see
+   * {@link WTFScripts#push(String)}.
+   *
+   * @return the value of the condition, or null if it is not true within the
+   *         given time
+   */
+  T awaitInPage(WebDriver driver, long timeoutInMillis) {
+    if (pushScript == null) {
+      pushScript = WTFScripts.push(script);
+    }
+    Object[] pushArgs = Arrays.copyOf(args, args.length + 1);
+    pushArgs[args.length] = timeoutInMillis;
+    Object value = WTFScripts.executeAsync(driver, pushScript, pushArgs);
+    return value != null ? convert(value) : null;
+  }
+
+  public boolean equals(Object o) {
+    if (o == this) {
+      return true;
+    } else if (o == null || o.getClass() != getClass()) {
+      return false;
+    }
+    WTFScriptCondition<?> other = (WTFScriptCondition<?>) o;
+    return script.equals(other.script) && Arrays.equals(args, other.args);
+  }
+
+  public int hashCode() {
+    return 31 * script.hashCode() + Arrays.hashCode(args);
+  }
+
+  public String toString() {
+    return description;
+  }
+}
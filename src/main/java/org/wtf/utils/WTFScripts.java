@@ -0,0 +1,305 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Page side helpers shared by the script evaluated conditions and bulk
+ * operations. {@link #PRELUDE} defines a {@code wtf} object in the script
+ * scope that resolves WebDriver locators and answers the element state
+ * questions WebDriver would otherwise need one command each for.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+final class WTFScripts {
+
+  /**
+   * Defines {@code wtf.find(root, using, value)}, {@code wtf.first},
+   * {@code wtf.shown}, {@code wtf.enabled}, {@code wtf.obscured},
+   * {@code wtf.text} and {@code wtf.attribute}. A null root means the
+   * document. Visibility follows WebDriver's rules closely but not exactly:
+   * an element is shown when it has a box, is not hidden by visibility and
+   * neither it nor an ancestor is fully transparent.
+   */
+  static final String PRELUDE = ""
+      + "var wtf = {\n"
+      + "  quote: function(v) {\n"
+      + "    return '\"' + String(v).replace(/([\"\\\\])/g, '\\\\$1') + '\"';\n"
+      + "  },\n"
+      + "  list: function(nodes) {\n"
+      + "    var all = [];\n"
+      + "    for (var i = 0; i < nodes.length; i++) {\n"
+      + "      if (nodes[i].nodeType === 1) { all.push(nodes[i]); }\n"
+      + "    }\n"
+      + "    return all;\n"
+      + "  },\n"
+      + "  links: function(root, value, partial) {\n"
+      + "    var all = [], links = root.querySelectorAll('a');\n"
+      + "    for (var i = 0; i < links.length; i++) {\n"
+      + "      var text = wtf.text(links[i]);\n"
+      + "      if (partial ? text.indexOf(value) >= 0 : text === value) { all.push(links[i]); }\n"
+      + "    }\n"
+      + "    return all;\n"
+      + "  },\n"
+      + "  find: function(root, using, value) {\n"
+      + "    root = root || document;\n"
+      + "    switch (using) {\n"
+      + "      case 'id':\n"
+      + "        return wtf.list(root.querySelectorAll('[id=' + wtf.quote(value) + ']'));\n"
+      + "      case 'name':\n"
+      + "        return wtf.list(root.querySelectorAll('[name=' + wtf.quote(value) + ']'));\n"
+      + "      case 'class name':\n"
+      + "        return wtf.list(root.querySelectorAll('[class~=' + wtf.quote(value) + ']'));\n"
+      + "      case 'css selector': return wtf.list(root.querySelectorAll(value));\n"
+      + "      case 'tag name': return wtf.list(root.getElementsByTagName(value));\n"
+      + "      case 'link text': return wtf.links(root, value, false);\n"
+      + "      case 'partial link text': return wtf.links(root, value, true);\n"
+      + "      case 'xpath':\n"
+      + "        var doc = root.ownerDocument || root, all = [];\n"
+      + "        var found = doc.evaluate(value, root, null, 7, null);\n"
+      + "        for (var i = 0; i < found.snapshotLength; i++) {\n"
+      + "          if (found.snapshotItem(i).nodeType === 1) { all.push(found.snapshotItem(i)); }\n"
+      + "        }\n"
+      + "        return all;\n"
+      + "    }\n"
+      + "    throw new Error('Unsupported locator: ' + using);\n"
+      + "  },\n"
+      + "  first: function(root, using, value) {\n"
+      + "    var all = wtf.find(root, using, value);\n"
+      + "    return all.length ? all[0] : null;\n"
+      + "  },\n"
+      + "  view: function(e) {\n"
+      + "    return e.ownerDocument.defaultView || window;\n"
+      + "  },\n"
+      + "  shown: function(e) {\n"
+      + "    if (!e.getClientRects().length) { return false; }\n"
+      + "    var style = wtf.view(e).getComputedStyle(e);\n"
+      + "    if (style.visibility === 'hidden' || style.visibility === 'collapse') {\n"
+      + "      return false;\n"
+      + "    }\n"
+      + "    for (var a = e; a && a.nodeType === 1; a = a.parentNode) {\n"
+      + "      if (wtf.view(a).getComputedStyle(a).opacity === '0') { return false; }\n"
+      + "    }\n"
+      + "    var box = e.getBoundingClientRect();\n"
+      + "    return box.width > 0 && box.height > 0;\n"
+      + "  },\n"
+      + "  enabled: function(e) {\n"
+      + "    return !e.disabled;\n"
+      + "  },\n"
+      + "  obscured: function(e) {\n"
+      + "    var box = e.getBoundingClientRect(), view = wtf.view(e);\n"
+      + "    var x = box.left + box.width / 2, y = box.top + box.height / 2;\n"
+      + "    if (x < 0 || y < 0 || x >= view.innerWidth || y >= view.innerHeight) {\n"
+      + "      return false;\n"
+      + "    }\n"
+      + "    var hit = e.ownerDocument.elementFromPoint(x, y);\n"
+      + "    return !!hit && hit !== e && !e.contains(hit);\n"
+      + "  },\n"
+      + "  text: function(e) {\n"
+      + "    var text = e.innerText !== undefined ? e.innerText : e.textContent;\n"
+      + "    return (text || '').replace(/\\s+/g, ' ').replace(/^ | $/g, '');\n"
+      + "  },\n"
+      + "  attribute: function(e, name) {\n"
+      + "    var value = e[name];\n"
+      + "    if (value === undefined || value === null || typeof value === 'object'\n"
+      + "        || typeof value === 'function') {\n"
+      + "      value = e.getAttribute(name);\n"
+      + "    }\n"
+      + "    return value === undefined || value === null ? null : String(value);\n"
+      + "  }\n"
+      + "};\n";
+
+  static final long RECHECK_INTERVAL_IN_MILLIS = 100L;
+
+  /**
+   * Opens the asynchronous wrapper of {@link #push(String)}. The condition
+   * script becomes the body of {@code check}, called with the arguments of
+   * the condition; the last two arguments are the time to wait in
+   * milliseconds and the WebDriver callback.
+   */
+  private static final String PUSH_PREFIX = ""
+      + "var done = arguments[arguments.length - 1];\n"
+      + "var slice = arguments[arguments.length - 2];\n"
+      + "var args = Array.prototype.slice.call(arguments, 0, arguments.length - 2);\n"
+      + "var check = function() {\n";
+
+  /**
+   * Evaluates {@code check} at once, then whenever the DOM changes and every
+   * {@value #RECHECK_INTERVAL_IN_MILLIS} ms for changes no mutation reports
+   * (layout, animations), until it is true or the time is over.
+   */
+  private static final String PUSH_SUFFIX = ""
+      + "\n};\n"
+      + "var finished = false, scheduled = false, observer = null, recheck = null, expiry = null;\n"
+      + "var finish = function(value) {\n"
+      + "  if (finished) { return; }\n"
+      + "  finished = true;\n"
+      + "  if (observer) { observer.disconnect(); }\n"
+      + "  clearInterval(recheck);\n"
+      + "  clearTimeout(expiry);\n"
+      + "  done(value === undefined ? null : value);\n"
+      + "};\n"
+      + "var evaluate = function() {\n"
+      + "  scheduled = false;\n"
+      + "  if (finished) { return; }\n"
+      + "  var value;\n"
+      + "  try {\n"
+      + "    value = check.apply(null, args);\n"
+      + "  } catch (e) {\n"
+      + "    finish(null);\n"
+      + "    return;\n"
+      + "  }\n"
+      + "  if (value !== null && value !== undefined && value !== false) { finish(value); }\n"
+      + "};\n"
+      + "evaluate();\n"
+      + "if (!finished) {\n"
+      + "  var Observer = window.MutationObserver || window.WebKitMutationObserver;\n"
+      + "  if (Observer) {\n"
+      + "    observer = new Observer(function() {\n"
+      + "      if (!scheduled) { scheduled = true; setTimeout(evaluate, 0); }\n"
+      + "    });\n"
+      + "    observer.observe(document,\n"
+      + "        {childList: true, subtree: true, attributes: true, characterData: true});\n"
+      + "  }\n"
+      + "  recheck = setInterval(evaluate, " + RECHECK_INTERVAL_IN_MILLIS + ");\n"
+      + "  expiry = setTimeout(function() { finish(null); }, slice);\n"
+      + "}\n";
+
+  /**
+   * Ends the scripts of {@link #combine(List, boolean)}, after the condition
+   * scripts are defined as {@code checks}.
+   */
+  private static final String ANY_OF = ""
+      + "for (var i = 0; i < checks.length; i++) {\n"
+      + "  var value = checks[i].apply(null, arguments[0][i]);\n"
+      + "  if (value !== null && value !== undefined && value !== false) { return [i, value]; }\n"
+      + "}\n"
+      + "return null;";
+
+  private static final String ALL_OF = ""
+      + "var values = [];\n"
+      + "for (var i = 0; i < checks.length; i++) {\n"
+      + "  var value = checks[i].apply(null, arguments[0][i]);\n"
+      + "  if (value === null || value === undefined || value === false) { return null; }\n"
+      + "  values.push(value);\n"
+      + "}\n"
+      + "return values;";
+
+  private WTFScripts() {
+    // Utility class
+  }
+
+  /**
+   * Translates a WebDriver locator into the strategy and value understood by
+   * {@code wtf.find}.
+   *
+   * @return the strategy and value, or null for locators that only WebDriver
+   *         can resolve (chained, custom ...)
+   */
+  static List<String> locator(By by) {
+    if (by == null || !by.getClass().getName().startsWith(By.class.getName() + "$")) {
+      return null;
+    }
+    String description = by.toString();
+    int separator = description.indexOf(": ");
+    if (separator < 0) {
+      return null;
+    }
+    String strategy = description.substring(0, separator);
+    String value = description.substring(separator + 2);
+    if ("By.id".equals(strategy)) {
+      return Arrays.asList("id", value);
+    } else if ("By.name".equals(strategy)) {
+      return Arrays.asList("name", value);
+    } else if ("By.className".equals(strategy)) {
+      return Arrays.asList("class name", value);
+    } else if ("By.cssSelector".equals(strategy) || "By.selector".equals(strategy)) {
+      return Arrays.asList("css selector", value);
+    } else if ("By.tagName".equals(strategy)) {
+      return Arrays.asList("tag name", value);
+    } else if ("By.xpath".equals(strategy)) {
+      return Arrays.asList("xpath", value);
+    } else if ("By.linkText".equals(strategy)) {
+      return Arrays.asList("link text", value);
+    } else if ("By.partialLinkText".equals(strategy)) {
+      return Arrays.asList("partial link text", value);
+    }
+    return null;
+  }
+
+  /**
+   * @return true if the locator can be resolved in the page of the driver
+   */
+  static boolean supports(WebDriver driver, By by) {
+    return driver instanceof JavascriptExecutor && locator(by) != null;
+  }
+
+  /**
+   * @return the script body preceded by {@link #PRELUDE}
+   */
+  static String script(String body) {
+    return PRELUDE + body;
+  }
+
+  /**
+   * @return the body of a script built by {@link #script(String)}
+   */
+  static String body(String script) {
+    return script.startsWith(PRELUDE) ? script.substring(PRELUDE.length()) : script;
+  }
+
+  /**
+   * Combines condition scripts into one, called with the list of the
+   * arguments of each condition. The combined script returns the index and
+   * value of the first true condition, or, if all must be true, the values
+   * of every condition; otherwise null.
+   *
+   * @param bodies
+   *          the condition scripts, without {@link #PRELUDE}
+   * @param all
+   *          true if every condition must be true
+   */
+  static String combine(List<String> bodies, boolean all) {
+    StringBuilder script = new StringBuilder(PRELUDE).append("var checks = [");
+    for (int i = 0; i < bodies.size(); i++) {
+      script.append(i == 0 ? "" : ",").append("\nfunction() {\n").append(bodies.get(i))
+          .append("\n}");
+    }
+    return script.append("];\n").append(all ? ALL_OF : ANY_OF).toString();
+  }
+
+  /**
+   * Wraps a condition script into an asynchronous script that calls back
+   * with the value of the condition as soon as it is true in the page, or
+   * with null when the given time is over or the condition fails.
+   *
+   * @return the script for {@link #executeAsync(WebDriver, String, Object...)}
+   */
+  static String push(String script) {
+    return PUSH_PREFIX + script + PUSH_SUFFIX;
+  }
+
+  /**
+   * Runs an asynchronous script in the page of the driver.
+   */
+  static Object executeAsync(WebDriver driver, String script, Object... args) {
+    WTFMetrics.command(driver);
+    return ((JavascriptExecutor) driver).executeAsyncScript(script, args);
+  }
+
+  /**
+   * Runs a script in the page of the driver.
+   */
+  static Object execute(WebDriver driver, String script, Object... args) {
+    WTFMetrics.command(driver);
+    return ((JavascriptExecutor) driver).executeScript(script, args);
+  }
+}
@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.WebDriver;
+
+/**
+ * Per driver state kept by the utils. Sessions are weakly keyed on the
+ * WebDriver, so the state of a dead session is collected with its driver.
+ * Nothing in here may hold the driver strongly.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+final class WTFSession {
+
+  private static final Map<WebDriver, WTFSession> SESSIONS =
+      new WeakHashMap<WebDriver, WTFSession>();
+
+  /**
+   * Most threads drive a single session, so the last lookup is remembered per
+   * thread to keep the shared map lock off the hot path.
+   */
+  private static final ThreadLocal<LastLookup> LAST_LOOKUP = new ThreadLocal<LastLookup>();
+
+  private final WTFConfig config = new WTFConfig();
+
+  private volatile CachedWait cachedWait;
+
+  private volatile WTFElementCache elementCache;
+
+  private volatile long scriptTimeoutInMillis = -1;
+  private volatile boolean asyncScriptsUnsupported;
+
+  /** The waits polling the session, and the implicit wait they suspended. */
+  private int suppressions;
+  private long suppressedWaitInMillis;
+
+  private WTFSession() {
+    // Created through of(WebDriver)
+  }
+
+  static WTFSession of(WebDriver driver) {
+    LastLookup last = LAST_LOOKUP.get();
+    if (last != null && last.get() == driver) {
+      return last.session;
+    }
+    WTFSession session;
+    synchronized (SESSIONS) {
+      session = SESSIONS.get(driver);
+      if (session == null) {
+        session = new WTFSession();
+        SESSIONS.put(driver, session);
+      }
+    }
+    LAST_LOOKUP.set(new LastLookup(driver, session));
+    return session;
+  }
+
+  WTFConfig getConfig() {
+    return config;
+  }
+
+  /**
+   * Returns a wait configured from the session settings, reusing the previous
+   * one while the settings are unchanged. The wait is kept strongly but only
+   * holds the driver weakly, so it never keeps the driver alive.
+   */
+  WTFWait getWait(WebDriver driver) {
+    long timeout = config.getTimeoutInSeconds();
+    long pollingInterval = config.getPollingIntervalInMillis();
+    WTFPolling polling = config.getPolling();
+    WTFTuner tuner = config.getTuner();
+    CachedWait cached = cachedWait;
+    if (cached != null && cached.timeout == timeout && cached.polling == polling
+        && (polling != null || cached.pollingInterval == pollingInterval)
+        && cached.wait.getTuner() == tuner) {
+      return cached.wait;
+    }
+    WTFWait wait = new WTFWait(new WeakReference<WebDriver>(driver), timeout,
+        polling != null ? polling : WTFPolling.fixed(pollingInterval), tuner);
+    cachedWait = new CachedWait(wait, timeout, polling, pollingInterval);
+    return wait;
+  }
+
+  /**
+   * @return the element cache of the session, or null when it is disabled
+   */
+  WTFElementCache getElementCache() {
+    int size = config.getElementCacheSize();
+    WTFElementCache cache = elementCache;
+    if (size <= 0) {
+      if (cache != null) {
+        elementCache = null;
+      }
+      return null;
+    }
+    if (cache == null || cache.getMaxSize() != size) {
+      cache = new WTFElementCache(size);
+      elementCache = cache;
+    }
+    return cache;
+  }
+
+  /**
+   * Lets asynchronous scripts of the session run for at least the given time.
+   * WebDriver keeps a single script time out per session, so it is only ever
+   * raised, which in practice sets it once.
+   */
+  void ensureScriptTimeout(WebDriver driver, long timeoutInMillis) {
+    if (scriptTimeoutInMillis < timeoutInMillis) {
+      WTFMetrics.command(driver);
+      driver.manage().timeouts().setScriptTimeout(timeoutInMillis, TimeUnit.MILLISECONDS);
+      scriptTimeoutInMillis = timeoutInMillis;
+    }
+  }
+
+  /**
+   * Forgets the script time out, after a script timed out earlier than
+   * expected because someone else lowered it.
+   */
+  void resetScriptTimeout() {
+    scriptTimeoutInMillis = -1;
+  }
+
+  /**
+   * Sets the implicit wait of the session to 0 for a wait about to poll. The
+   * first of nested or concurrent waits sends the command, and the last one
+   * restores the wait through {@link #restoreImplicitWait(WebDriver)}, so
+   * that a session without an implicit wait never sends one.
+   */
+  synchronized void suppressImplicitWait(WebDriver driver) {
+    if (suppressions == 0) {
+      long implicitWait = config.getImplicitWaitInMillis();
+      if (implicitWait > 0) {
+        WTFMetrics.command(driver);
+        driver.manage().timeouts().implicitlyWait(0, TimeUnit.MILLISECONDS);
+      }
+      suppressedWaitInMillis = implicitWait;
+    }
+    suppressions++;
+  }
+
+  /**
+   * Called once a wait is over; restores the implicit wait the first wait
+   * suspended when no other wait polls the session.
+   */
+  synchronized void restoreImplicitWait(WebDriver driver) {
+    if (--suppressions == 0 && suppressedWaitInMillis > 0) {
+      long implicitWait = suppressedWaitInMillis;
+      suppressedWaitInMillis = 0;
+      WTFMetrics.command(driver);
+      driver.manage().timeouts().implicitlyWait(implicitWait, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  boolean supportsAsyncScripts() {
+    return !asyncScriptsUnsupported;
+  }
+
+  void asyncScriptsUnsupported() {
+    asyncScriptsUnsupported = true;
+  }
+
+  private static final class LastLookup extends WeakReference<WebDriver> {
+
+    private final WTFSession session;
+
+    LastLookup(WebDriver driver, WTFSession session) {
+      super(driver);
+      this.session = session;
+    }
+  }
+
+  private static final class CachedWait {
+
+    private final WTFWait wait;
+    private final long timeout;
+    private final WTFPolling polling;
+    private final long pollingInterval;
+
+    CachedWait(WTFWait wait, long timeout, WTFPolling polling, long pollingInterval) {
+      this.wait = wait;
+      this.timeout = timeout;
+      this.polling = polling;
+      this.pollingInterval = pollingInterval;
+    }
+  }
+}
@@ -0,0 +1,552 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.Parser;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+import org.wtf.utils.WTFMetrics.Operation;
+
+/**
+ * WTF snapshot. A copy of the page pulled by one script, answering the read
+ * only queries of WTFUtil locally:
+ *
+ * <pre>
+ * WTFSnapshot snapshot = new WTFSnapshot(driver);
+ * assertEquals(snapshot.getText(By.id("total")), "42");
+ * assertTrue(snapshot.present(By.cssSelector(".row.paid")));
+ * ...
+ * snapshot.refresh();
+ * </pre>
+ *
+ * The queries do not wait: they answer for the page as it was when the
+ * snapshot was taken or refreshed. {@link #isStale()} tells, in one small
+ * script, whether the DOM changed or the page was left since. The page
+ * records which elements changed, so {@link #refresh()} pulls and replaces
+ * only their subtrees; the record is bounded, past {@value #MAX_CHANGED}
+ * elements the whole page is pulled again.
+ * <p/>
+ * Elements are located by id, name, class name, tag name, CSS selector,
+ * link text and the XPath subset of {@link WTFXPath}. The copy holds the
+ * current value, checked and selected state of the form fields, textareas
+ * and selects included, and marks the elements that are not shown, so that
+ * text and visibility follow the rules of the script evaluated conditions.
+ * Frames and shadow roots are not copied.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public final class WTFSnapshot {
+
+  /** Marks the elements that were not shown in the page. */
+  static final String HIDDEN = "data-wtf-hidden";
+
+  /** Identifies an element across pulls, so that its subtree can be replaced. */
+  static final String SID = "data-wtf-sid";
+
+  private static final Set<String> BOOLEAN_ATTRIBUTES = new HashSet<String>(Arrays.asList(
+      "checked", "selected", "disabled", "readonly", "required", "multiple"));
+
+  /**
+   * Elements changed in the page between two pulls before a refresh pulls
+   * the whole page again.
+   */
+  static final int MAX_CHANGED = 256;
+
+  /**
+   * Serializes the document with the current state of its fields, a
+   * {@value #SID} on every element and {@value #HIDDEN} on the elements not
+   * shown, and records the elements changed afterwards. Called with the id
+   * of the snapshot to refresh, or null, it serializes only the subtrees of
+   * the changed elements when the page still has the record of that
+   * snapshot; otherwise the whole document, under the new id.
+   */
+  private static final String SNAPSHOT_SCRIPT = WTFScripts.script(""
+      + "var current = arguments[0], fresh = arguments[1], limit = arguments[2];\n"
+      + "var VOID = {area: 1, base: 1, br: 1, col: 1, embed: 1, hr: 1, img: 1, input: 1,\n"
+      + "    link: 1, meta: 1, param: 1, source: 1, track: 1, wbr: 1};\n"
+      + "var SKIP = {script: 1, style: 1, template: 1, noscript: 1};\n"
+      + "var out = [];\n"
+      + "var escape = function(text, attribute) {\n"
+      + "  text = String(text).replace(/&/g, '&amp;');\n"
+      + "  return attribute ? text.replace(/\"/g, '&quot;')\n"
+      + "      : text.replace(/</g, '&lt;').replace(/>/g, '&gt;');\n"
+      + "};\n"
+      + "var boxless = function(e) {\n"
+      + "  var tag = e.tagName.toLowerCase();\n"
+      + "  return tag !== 'option' && tag !== 'optgroup' && (!e.getClientRects().length\n"
+      + "      || wtf.view(e).getComputedStyle(e).opacity === '0');\n"
+      + "};\n"
+      + "var write = function(e, gone) {\n"
+      + "  var tag = e.tagName.toLowerCase(), hidden = gone;\n"
+      + "  if (e.__wtfSid === undefined) {\n"
+      + "    e.__wtfSid = window.__wtfSid = (window.__wtfSid || 0) + 1;\n"
+      + "  }\n"
+      + "  if (!gone && tag !== 'option' && tag !== 'optgroup') {\n"
+      + "    if (boxless(e)) {\n"
+      + "      hidden = gone = true;\n"
+      + "    } else {\n"
+      + "      var style = wtf.view(e).getComputedStyle(e), box = e.getBoundingClientRect();\n"
+      + "      hidden = style.visibility === 'hidden' || style.visibility === 'collapse'\n"
+      + "          || !(box.width > 0 && box.height > 0);\n"
+      + "    }\n"
+      + "  }\n"
+      + "  out.push('<', tag, ' " + SID + "=\"', e.__wtfSid, '\"');\n"
+      + "  for (var i = 0; i < e.attributes.length; i++) {\n"
+      + "    var name = e.attributes[i].name;\n"
+      + "    if (name !== 'value' && name !== 'checked' && name !== 'selected'\n"
+      + "        && name !== '" + HIDDEN + "' && name !== '" + SID + "') {\n"
+      + "      out.push(' ', name, '=\"', escape(e.attributes[i].value, true), '\"');\n"
+      + "    }\n"
+      + "  }\n"
+      + "  if (tag === 'input' || tag === 'option' || tag === 'button' || tag === 'textarea'\n"
+      + "      || tag === 'select') {\n"
+      + "    out.push(' value=\"', escape(e.value, true), '\"');\n"
+      + "  }\n"
+      + "  if (e.checked === true && tag === 'input') { out.push(' checked=\"\"'); }\n"
+      + "  if (e.selected === true && tag === 'option') { out.push(' selected=\"\"'); }\n"
+      + "  if (hidden) { out.push(' " + HIDDEN + "=\"\"'); }\n"
+      + "  out.push('>');\n"
+      + "  if (VOID[tag]) { return; }\n"
+      + "  if (tag === 'textarea') {\n"
+      + "    out.push(escape(e.value));\n"
+      + "  } else if (!SKIP[tag]) {\n"
+      + "    for (var c = e.firstChild; c; c = c.nextSibling) {\n"
+      + "      if (c.nodeType === 1) {\n"
+      + "        write(c, gone);\n"
+      + "      } else if (c.nodeType === 3) {\n"
+      + "        out.push(escape(c.nodeValue));\n"
+      + "      }\n"
+      + "    }\n"
+      + "  }\n"
+      + "  out.push('</', tag, '>');\n"
+      + "};\n"
+      + "var root = document.documentElement, state = window.__wtfSnapshot, patches = null;\n"
+      + "if (state && current !== null && state.id === current && !state.full) {\n"
+      + "  patches = [];\n"
+      + "  for (var sid in state.changed) {\n"
+      + "    var e = state.changed[sid], covered = !root.contains(e);\n"
+      + "    for (var a = e.parentNode; a && a.nodeType === 1 && !covered; a = a.parentNode) {\n"
+      + "      covered = state.changed[a.__wtfSid] === a;\n"
+      + "    }\n"
+      + "    if (covered) { continue; }\n"
+      + "    if (e === root || e === document.head || e === document.body) {\n"
+      + "      patches = null;\n"
+      + "      break;\n"
+      + "    }\n"
+      + "    var gone = false;\n"
+      + "    for (var a = e.parentNode; a && a.nodeType === 1 && !gone; a = a.parentNode) {\n"
+      + "      gone = boxless(a);\n"
+      + "    }\n"
+      + "    out = [];\n"
+      + "    write(e, gone);\n"
+      + "    patches.push([String(e.__wtfSid), out.join('')]);\n"
+      + "  }\n"
+      + "}\n"
+      + "if (patches) {\n"
+      + "  state.stale = false;\n"
+      + "  state.changed = {};\n"
+      + "  state.count = 0;\n"
+      + "  return {id: current, patches: patches};\n"
+      + "}\n"
+      + "out = [];\n"
+      + "write(root, false);\n"
+      + "if (state) {\n"
+      + "  if (state.observer) { state.observer.disconnect(); }\n"
+      + "  document.removeEventListener('input', state.listener, true);\n"
+      + "  document.removeEventListener('change', state.listener, true);\n"
+      + "}\n"
+      + "state = window.__wtfSnapshot = {id: fresh, stale: false, full: false, changed: {},\n"
+      + "    count: 0, observer: null};\n"
+      + "var mark = function(e) {\n"
+      + "  state.stale = true;\n"
+      + "  if (e && e.nodeType !== 1) { e = e.parentNode; }\n"
+      + "  if (state.full || !e || e.__wtfSid === undefined || state.changed[e.__wtfSid] === e) {\n"
+      + "    return;\n"
+      + "  }\n"
+      + "  if (++state.count > limit) {\n"
+      + "    state.full = true;\n"
+      + "    state.changed = {};\n"
+      + "  } else {\n"
+      + "    state.changed[e.__wtfSid] = e;\n"
+      + "  }\n"
+      + "};\n"
+      + "state.listener = function(event) { mark(event.target); };\n"
+      + "var Observer = window.MutationObserver || window.WebKitMutationObserver;\n"
+      + "if (Observer) {\n"
+      + "  state.observer = new Observer(function(records) {\n"
+      + "    for (var i = 0; i < records.length; i++) { mark(records[i].target); }\n"
+      + "  });\n"
+      + "  state.observer.observe(document,\n"
+      + "      {childList: true, subtree: true, attributes: true, characterData: true});\n"
+      + "} else {\n"
+      + "  state.stale = state.full = true;\n"
+      + "}\n"
+      + "document.addEventListener('input', state.listener, true);\n"
+      + "document.addEventListener('change', state.listener, true);\n"
+      + "return {id: fresh, html: out.join('')};");
+
+  private static final String STALE_SCRIPT = ""
+      + "var state = window.__wtfSnapshot;\n"
+      + "return !state || state.id !== arguments[0] || state.stale;";
+
+  private final WebDriver driver;
+  private String id;
+  private Document document;
+
+  /**
+   * Takes a snapshot of the current page.
+   *
+   * @param driver
+   *          the WebDriver, able to run scripts
+   */
+  public WTFSnapshot(WebDriver driver) {
+    if (!(driver instanceof JavascriptExecutor)) {
+      throw new IllegalArgumentException("Snapshots need a driver that runs scripts: "
+          + driver);
+    }
+    this.driver = driver;
+    refresh();
+  }
+
+  /**
+   * Brings the snapshot up to date. Only the subtrees changed since the last
+   * pull are pulled, unless the page was left or more than
+   * {@value #MAX_CHANGED} elements changed, then the whole page is.
+   */
+  public void refresh() {
+    WTFMetrics.enter(Operation.SNAPSHOT);
+    try {
+      Map<?, ?> pulled = pull(id);
+      if (pulled.get("html") == null) {
+        if (patch((List<?>) pulled.get("patches"))) {
+          return;
+        }
+        pulled = pull(null);
+      }
+      document = Jsoup.parse((String) pulled.get("html"));
+      id = (String) pulled.get("id");
+    } finally {
+      WTFMetrics.exit();
+    }
+  }
+
+  private Map<?, ?> pull(String id) {
+    return (Map<?, ?>) WTFScripts.execute(driver, SNAPSHOT_SCRIPT, id,
+        UUID.randomUUID().toString(), MAX_CHANGED);
+  }
+
+  /**
+   * Replaces the changed subtrees of the local copy.
+   *
+   * @param patches
+   *          the element id and serialized subtree of each changed element
+   * @return false if a subtree could not be replaced, the copy must then be
+   *         pulled whole
+   */
+  private boolean patch(List<?> patches) {
+    Map<String, Element> targets = new HashMap<String, Element>();
+    for (Object patch : patches) {
+      targets.put((String) ((List<?>) patch).get(0), null);
+    }
+    if (targets.isEmpty()) {
+      return true;
+    }
+    for (Element element : document.getAllElements()) {
+      String sid = element.attr(SID);
+      if (targets.containsKey(sid)) {
+        targets.put(sid, element);
+      }
+    }
+    for (Object patch : patches) {
+      Element target = targets.get(((List<?>) patch).get(0));
+      if (target == null || target.parent() == null) {
+        return false;
+      }
+      List<Node> nodes = Parser.parseFragment((String) ((List<?>) patch).get(1),
+          target.parent(), "");
+      if (nodes.size() != 1) {
+        return false;
+      }
+      target.replaceWith(nodes.get(0));
+    }
+    return true;
+  }
+
+  /**
+   * @return true if the DOM or a field changed, or the page was left, since
+   *         the snapshot was taken; changes of style alone are not seen
+   */
+  public boolean isStale() {
+    return Boolean.TRUE.equals(WTFScripts.execute(driver, STALE_SCRIPT, id));
+  }
+
+  /**
+   * @return the snapshot, e.g. for queries jsoup answers better
+   */
+  public Document getDocument() {
+    return document;
+  }
+
+  /**
+   * @param by
+   *          locator used to find the element
+   * @return true if the element is in the snapshot
+   */
+  public Boolean present(By by) {
+    return !find(by).isEmpty();
+  }
+
+  /**
+   * @param by
+   *          locator used to find the element
+   * @return true if the element is not in the snapshot
+   */
+  public Boolean notPresent(By by) {
+    return find(by).isEmpty();
+  }
+
+  /**
+   * @param by
+   *          locator used to find the element
+   * @return true if the element is in the snapshot and was shown
+   */
+  public Boolean visible(By by) {
+    List<Element> found = find(by);
+    return !found.isEmpty() && shown(found.get(0));
+  }
+
+  /**
+   * @param by
+   *          locator used to find the element
+   * @return true if the element is not in the snapshot or was not shown
+   */
+  public Boolean invisible(By by) {
+    return !visible(by);
+  }
+
+  /**
+   * @param by
+   *          locator used to find the element
+   * @return true if the check box, radio button or option was selected
+   */
+  public Boolean selected(By by) {
+    Element element = first(by);
+    return element.hasAttr("checked") || element.hasAttr("selected");
+  }
+
+  /**
+   * @param by
+   *          locator used to find the element
+   * @param text
+   *          the text to look for
+   * @return true if the text of the element contains the given text
+   */
+  public Boolean textPresent(By by, String text) {
+    List<Element> found = find(by);
+    return !found.isEmpty() && text(found.get(0)).contains(text);
+  }
+
+  /**
+   * @param by
+   *          locator used to find the element
+   * @param attributeName
+   *          the attribute name
+   * @param attributeValue
+   *          the value to look for
+   * @return true if the attribute value of the element contains the given
+   *         value
+   */
+  public Boolean attributeValuePresent(By by, String attributeName, String attributeValue) {
+    List<Element> found = find(by);
+    String value = found.isEmpty() ? null : attribute(found.get(0), attributeName);
+    return value != null && value.contains(attributeValue);
+  }
+
+  /**
+   * @param by
+   *          locator used to find the element
+   * @param attributeName
+   *          the attribute name
+   * @return the attribute value, "true" or null for boolean attributes, null
+   *         if the element has no such attribute
+   * @throws NoSuchElementException
+   *           if the element is not in the snapshot
+   */
+  public String getAttributeValue(By by, String attributeName) {
+    return attribute(first(by), attributeName);
+  }
+
+  /**
+   * @param by
+   *          locator used to find the element
+   * @return the text of the element, empty if it was not shown
+   * @throws NoSuchElementException
+   *           if the element is not in the snapshot
+   */
+  public String getText(By by) {
+    return text(first(by));
+  }
+
+  /**
+   * @param by
+   *          locator used to find the element
+   * @return the value of the element
+   * @throws NoSuchElementException
+   *           if the element is not in the snapshot
+   */
+  public String getValue(By by) {
+    return getAttributeValue(by, "value");
+  }
+
+  /**
+   * Reads the given properties of many elements, as
+   * {@link WTFUtil#readAll(WebDriver, Map, String...)} does.
+   *
+   * @param locators
+   *          locators used to find the elements, by name
+   * @param properties
+   *          the attribute names to read, {@link WTFUtil#TEXT} for the text
+   * @return the values by name, then by property
+   * @throws NoSuchElementException
+   *           if an element is not in the snapshot
+   */
+  public Map<String, Map<String, String>> readAll(Map<String, By> locators,
+      String... properties) {
+    Map<String, Map<String, String>> values = new LinkedHashMap<String, Map<String, String>>();
+    for (Map.Entry<String, By> locator : locators.entrySet()) {
+      Element element = first(locator.getValue());
+      Map<String, String> value = new LinkedHashMap<String, String>();
+      for (String property : properties) {
+        value.put(property, WTFUtil.TEXT.equals(property) ? text(element)
+            : attribute(element, property));
+      }
+      values.put(locator.getKey(), value);
+    }
+    return values;
+  }
+
+  /**
+   * @param by
+   *          locator used to find the elements
+   * @return the texts of every element located
+   */
+  public List<String> getTexts(By by) {
+    List<String> texts = new ArrayList<String>();
+    for (Element element : find(by)) {
+      texts.add(text(element));
+    }
+    return texts;
+  }
+
+  private Element first(By by) {
+    List<Element> found = find(by);
+    if (found.isEmpty()) {
+      throw new NoSuchElementException("Cannot locate an element using " + by);
+    }
+    return found.get(0);
+  }
+
+  /**
+   * @return the elements located, in document order
+   * @throws IllegalArgumentException
+   *           for locators a snapshot cannot answer
+   */
+  List<Element> find(By by) {
+    List<String> locator = WTFScripts.locator(by);
+    if (locator == null) {
+      throw new IllegalArgumentException("Cannot locate in a snapshot using " + by);
+    }
+    String using = locator.get(0);
+    String value = locator.get(1);
+    if ("css selector".equals(using)) {
+      return document.select(value);
+    } else if ("xpath".equals(using)) {
+      return WTFXPath.select(document, value);
+    }
+    List<Element> found = new ArrayList<Element>();
+    for (Element element : document.getAllElements()) {
+      if (matches(element, using, value)) {
+        found.add(element);
+      }
+    }
+    return found;
+  }
+
+  private static boolean matches(Element element, String using, String value) {
+    if ("id".equals(using)) {
+      return element.hasAttr("id") && element.attr("id").equals(value);
+    } else if ("name".equals(using)) {
+      return element.hasAttr("name") && element.attr("name").equals(value);
+    } else if ("class name".equals(using)) {
+      return Arrays.asList(element.className().trim().split("\\s+")).contains(value);
+    } else if ("tag name".equals(using)) {
+      return element.tagName().equalsIgnoreCase(value);
+    } else if ("link text".equals(using)) {
+      return "a".equals(element.tagName()) && text(element).equals(value);
+    } else if ("partial link text".equals(using)) {
+      return "a".equals(element.tagName()) && text(element).contains(value);
+    }
+    return false;
+  }
+
+  private static boolean shown(Element element) {
+    return !element.hasAttr(HIDDEN);
+  }
+
+  private static String attribute(Element element, String name) {
+    if (BOOLEAN_ATTRIBUTES.contains(name.toLowerCase())) {
+      return element.hasAttr(name) ? "true" : null;
+    }
+    return element.hasAttr(name) ? element.attr(name) : null;
+  }
+
+  /**
+   * @return the text of the element and its shown descendants, with the
+   *         white space normalized as {@code wtf.text} does
+   */
+  static String text(Element element) {
+    if (!shown(element)) {
+      return "";
+    }
+    StringBuilder text = new StringBuilder();
+    appendText(element, text);
+    return text.toString().replaceAll("\\s+", " ").trim();
+  }
+
+  private static void appendText(Element element, StringBuilder text) {
+    for (Node node : element.childNodes()) {
+      if (node instanceof TextNode) {
+        text.append(((TextNode) node).getWholeText());
+      } else if (node instanceof Element && shown((Element) node)) {
+        Element child = (Element) node;
+        boolean block = child.isBlock() || "br".equals(child.tagName());
+        if (block) {
+          text.append(' ');
+        }
+        appendText(child, text);
+        if (block) {
+          text.append(' ');
+        }
+      }
+    }
+  }
+}
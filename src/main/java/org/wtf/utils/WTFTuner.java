@@ -0,0 +1,250 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * WTF tuner. Learns how long each wait condition takes to become true and
+ * uses it to tune the waits of the sessions it is set on
+ * ({@link WTFConfig#setTuner(WTFTuner)}).
+ * <p/>
+ * Times are recorded per condition, which identifies both the condition type
+ * and its locator, into histograms of {@value #BUCKETS} logarithmic buckets.
+ * Once a condition has {@link #setMinSamples(int) enough samples}, its median
+ * becomes the delay after the first poll, and its 99th percentile times the
+ * {@link #setTimeoutFactor(double) timeout factor} becomes its time out, never
+ * longer than the configured one. Time outs are recorded as samples, so a
+ * condition that outgrows its tuned time out gets its time out back.
+ * <p/>
+ * The histograms are kept in a properties file between runs:
+ *
+ * <pre>
+ * WTFTuner tuner = WTFTuner.load(new File("target/wtf-tuner.properties"));
+ * WTFConfig.defaults().setTuner(tuner);
+ * ...
+ * tuner.save();
+ * </pre>
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public class WTFTuner {
+
+  /** Bucket i holds times up to 2^(i/2) ms, the last one everything above. */
+  static final int BUCKETS = 40;
+
+  private final File file;
+  private final ConcurrentMap<String, Histogram> histograms =
+      new ConcurrentHashMap<String, Histogram>();
+
+  private volatile int minSamples = 20;
+  private volatile double timeoutFactor = 2.0;
+
+  /**
+   * @param file
+   *          where {@link #save()} keeps the histograms, or null to keep them
+   *          in memory only
+   */
+  public WTFTuner(File file) {
+    this.file = file;
+  }
+
+  /**
+   * Creates a tuner with the histograms saved in the given file by a previous
+   * run, if any.
+   *
+   * @param file
+   *          the file written by {@link #save()}
+   * @return the tuner
+   * @throws IOException
+   *           if the file exists but cannot be read
+   */
+  public static WTFTuner load(File file) throws IOException {
+    WTFTuner tuner = new WTFTuner(file);
+    if (file.exists()) {
+      Properties properties = new Properties();
+      InputStream in = new FileInputStream(file);
+      try {
+        properties.load(in);
+      } finally {
+        in.close();
+      }
+      for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+        tuner.histograms.put((String) entry.getKey(), Histogram.parse((String) entry.getValue()));
+      }
+    }
+    return tuner;
+  }
+
+  /**
+   * Writes the histograms to the file the tuner was created with.
+   *
+   * @throws IOException
+   *           if the file cannot be written
+   */
+  public void save() throws IOException {
+    if (file == null) {
+      throw new IllegalStateException("The tuner was created without a file");
+    }
+    Properties properties = new Properties();
+    for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+      properties.setProperty(entry.getKey(), entry.getValue().toString());
+    }
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null) {
+      parent.mkdirs();
+    }
+    OutputStream out = new FileOutputStream(file);
+    try {
+      properties.store(out, "WTF tuner: time to condition histograms");
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * @param minSamples
+   *          the samples a condition needs before it is tuned
+   */
+  public void setMinSamples(int minSamples) {
+    this.minSamples = minSamples;
+  }
+
+  /**
+   * @param timeoutFactor
+   *          the margin applied to the 99th percentile to get a time out
+   */
+  public void setTimeoutFactor(double timeoutFactor) {
+    this.timeoutFactor = timeoutFactor;
+  }
+
+  /**
+   * Records the time the condition took to become true.
+   */
+  public void record(String condition, long elapsedInMillis) {
+    Histogram histogram = histograms.get(condition);
+    if (histogram == null) {
+      Histogram created = new Histogram();
+      histogram = histograms.putIfAbsent(condition, created);
+      if (histogram == null) {
+        histogram = created;
+      }
+    }
+    histogram.record(elapsedInMillis);
+  }
+
+  /**
+   * Returns the delay after the first poll of the condition.
+   *
+   * @param defaultInMillis
+   *          the delay to use while the condition is not tuned yet
+   */
+  public long firstDelayInMillis(String condition, long defaultInMillis) {
+    Histogram histogram = tuned(condition);
+    return histogram != null ? histogram.percentile(0.5) : defaultInMillis;
+  }
+
+  /**
+   * Returns the time out of the condition.
+   *
+   * @param configuredInMillis
+   *          the time out of the wait, used while the condition is not tuned
+   *          yet and never exceeded
+   */
+  public long timeoutInMillis(String condition, long configuredInMillis) {
+    Histogram histogram = tuned(condition);
+    if (histogram == null) {
+      return configuredInMillis;
+    }
+    long tuned = (long) Math.ceil(histogram.percentile(0.99) * timeoutFactor);
+    return Math.min(configuredInMillis, Math.max(1000L, tuned));
+  }
+
+  /**
+   * @return the number of samples recorded for the condition
+   */
+  public long samples(String condition) {
+    Histogram histogram = histograms.get(condition);
+    return histogram != null ? histogram.total() : 0;
+  }
+
+  private Histogram tuned(String condition) {
+    Histogram histogram = histograms.get(condition);
+    return histogram != null && histogram.total() >= minSamples ? histogram : null;
+  }
+
+  static int bucket(long millis) {
+    if (millis <= 1) {
+      return 0;
+    }
+    int bucket = (int) Math.ceil(2 * Math.log(millis) / Math.log(2));
+    return Math.min(bucket, BUCKETS - 1);
+  }
+
+  static long upperBound(int bucket) {
+    return (long) Math.ceil(Math.pow(2, bucket / 2.0));
+  }
+
+  /**
+   * Counts of times per bucket. Updated once per wait, so plain locking is
+   * cheap enough.
+   */
+  private static final class Histogram {
+
+    private final long[] counts = new long[BUCKETS];
+    private long total;
+
+    synchronized void record(long millis) {
+      counts[bucket(millis)]++;
+      total++;
+    }
+
+    synchronized long total() {
+      return total;
+    }
+
+    synchronized long percentile(double fraction) {
+      long rank = (long) Math.ceil(total * fraction);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        seen += counts[i];
+        if (seen >= rank && seen > 0) {
+          return upperBound(i);
+        }
+      }
+      return upperBound(BUCKETS - 1);
+    }
+
+    static Histogram parse(String value) {
+      Histogram histogram = new Histogram();
+      String[] counts = value.split(",");
+      for (int i = 0; i < counts.length && i < BUCKETS; i++) {
+        histogram.counts[i] = Long.parseLong(counts[i].trim());
+        histogram.total += histogram.counts[i];
+      }
+      return histogram;
+    }
+
+    public synchronized String toString() {
+      StringBuilder value = new StringBuilder();
+      for (int i = 0; i < BUCKETS; i++) {
+        if (i > 0) {
+          value.append(',');
+        }
+        value.append(counts[i]);
+      }
+      return value.toString();
+    }
+  }
+}
@@ -4,15 +4,25 @@
 
 package org.wtf.utils;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.WebDriverWait;
 import org.openqa.selenium.support.ui.Select;
 import org.openqa.selenium.By;
 import org.openqa.selenium.interactions.Actions;
+import org.wtf.utils.WTFMetrics.Operation;
 
 import static org.openqa.selenium.support.ui.ExpectedConditions.*;
 import static org.wtf.utils.WTFExpectedConditions.*;
@@ -25,24 +35,160 @@ import static org.wtf.utils.WTFExpectedConditions.*;
  */
 public class WTFUtil {
 
-  public static Long WAIT_TIMEOUT_IN_SECONDS = 30L;
+  /**
+   * The wait time out when nothing else is set.
+   *
+   * @deprecated the time out in use is {@link WTFConfig#getTimeoutInSeconds()};
+   *             this is {@link WTFConfig#DEFAULT_TIMEOUT_IN_SECONDS}
+   */
+  @Deprecated
+  public static final Long WAIT_TIMEOUT_IN_SECONDS = WTFConfig.DEFAULT_TIMEOUT_IN_SECONDS;
+
+  /**
+   * The property {@link #readAll(WebDriver, Map, String...)} reads as the
+   * visible text of the element, like {@link WebElement#getText()}. Any other
+   * property is read as an attribute.
+   */
+  public static final String TEXT = "text()";
 
   private WTFUtil() {
     // Utility class
   }
 
   private static WebDriverWait getDefaultWait(WebDriver driver) {
-    return new WebDriverWait(driver, WAIT_TIMEOUT_IN_SECONDS);
+    return WTFSession.of(driver).getWait(driver);
+  }
+
+  /**
+   * @return true if the conditions on the locator are to be answered by one
+   *         script call per poll, see {@link WTFConfig.EvaluationMode}, or
+   *         awaited in the page, see {@link WTFConfig.WaitMode}
+   */
+  private static boolean byScript(WebDriver driver, By by) {
+    WTFConfig config = WTFConfig.of(driver);
+    return (config.getEvaluationMode() == WTFConfig.EvaluationMode.SCRIPT
+        || config.getWaitMode() == WTFConfig.WaitMode.PUSH) && WTFScripts.supports(driver, by);
+  }
+
+  /**
+   * Drops the element cache of the session after an element it returned went
+   * stale, so that looking the element up again finds the current one.
+   * Re-throws the exception when no element was cached.
+   */
+  private static void forgetCachedElements(WebDriver driver, StaleElementReferenceException e) {
+    WTFElementCache cache = WTFSession.of(driver).getElementCache();
+    if (cache == null || !cache.clear()) {
+      throw e;
+    }
+    WTFMetrics.staleRetry();
   }
 
   /**
-   * Updates the default wait time out seconds with the user provided value.
+   * The conditions of the util methods, evaluated natively or by script as
+   * the session says. Shared with {@link WTFAsync}.
+   */
+  static ExpectedCondition<WebElement> presenceCondition(WebDriver driver,
+      WebElement parent, By by) {
+    if (byScript(driver, by)) {
+      return presenceOfElementLocatedByScript(parent, by);
+    }
+    return presenceOfElementLocated_(parent, by);
+  }
+
+  static ExpectedCondition<WebElement> clickableCondition(WebDriver driver,
+      WebElement parent, By by) {
+    if (byScript(driver, by)) {
+      return elementToBeClickableByScript(parent, by);
+    }
+    return elementToBeClickable_(parent, by);
+  }
+
+  static ExpectedCondition<WebElement> visibilityCondition(WebDriver driver,
+      WebElement parent, By by) {
+    if (byScript(driver, by)) {
+      return visibilityOfElementLocatedByScript(parent, by);
+    }
+    return visibilityOfElementLocated_(parent, by);
+  }
+
+  static ExpectedCondition<Boolean> invisibilityCondition(WebDriver driver,
+      WebElement parent, By by) {
+    if (byScript(driver, by)) {
+      return invisibilityOfElementLocatedByScript(parent, by);
+    }
+    return invisibilityOfElementLocated_(parent, by);
+  }
+
+  static ExpectedCondition<Boolean> selectionCondition(WebDriver driver,
+      WebElement parent, By by, boolean selected) {
+    if (byScript(driver, by)) {
+      return elementSelectionStateToBeByScript(parent, by, selected);
+    }
+    return elementSelectionStateToBe_(parent, by, selected);
+  }
+
+  static ExpectedCondition<Boolean> textCondition(WebDriver driver,
+      WebElement parent, By by, String text) {
+    if (byScript(driver, by)) {
+      return textToBePresentInElementByScript(parent, by, text);
+    }
+    return textToBePresentInElement_(parent, by, text);
+  }
+
+  static ExpectedCondition<Boolean> noTextCondition(WebDriver driver,
+      WebElement parent, By by, String text) {
+    if (byScript(driver, by)) {
+      return invisibilityOfElementWithTextByScript(parent, by, text);
+    }
+    return invisibilityOfElementWithText_(parent, by, text);
+  }
+
+  static ExpectedCondition<Boolean> attributeCondition(WebDriver driver,
+      WebElement parent, By by, String attributeName, String attributeValue) {
+    if (byScript(driver, by)) {
+      return attributeValueToBePresentInElementByScript(parent, by, attributeName,
+          attributeValue);
+    }
+    return attributeValueToBePresentInElement_(parent, by, attributeName, attributeValue);
+  }
+
+  /**
+   * Updates the default wait time out seconds with the user provided value,
+   * through {@link WTFConfig#defaults()}. Applies to every session and thread
+   * without a time out of its own; use
+   * {@link #setDefaultWaitTimeout(WebDriver, Long)} or {@link WTFConfig} to
+   * change a single session from parallel tests.
    * 
    * @param timeout
-   *          the time out in seconds
+   *          the time out in seconds, or null to use the library default
    */
   public static void setDefaultWaitTimeout(Long timeout) {
-    WAIT_TIMEOUT_IN_SECONDS = timeout;
+    WTFConfig.defaults().setTimeoutInSeconds(timeout);
+  }
+
+  /**
+   * Updates the default wait time out seconds of the given session only.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param timeout
+   *          the time out in seconds, or null to use the library default
+   */
+  public static void setDefaultWaitTimeout(WebDriver driver, Long timeout) {
+    WTFConfig.of(driver).setTimeoutInSeconds(timeout);
+  }
+
+  /**
+   * Updates the default polling interval of the given session only.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param interval
+   *          the polling interval in milliseconds, or null to use the library
+   *          default
+   */
+  public static void setDefaultPollingInterval(WebDriver driver, Long interval) {
+    WTFConfig.of(driver).setPollingIntervalInMillis(interval);
   }
 
   /**
@@ -56,7 +202,12 @@ public class WTFUtil {
    *          locator used to find the element
    */
   public static void click(WebDriver driver, WebDriverWait wait, By by) {
-    wait.until(elementToBeClickable(by)).click();
+    WTFMetrics.enter(Operation.CLICK);
+    try {
+      perform(driver, wait, clickableCondition(driver, null, by), CLICK);
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -86,7 +237,75 @@ public class WTFUtil {
    */
   public static void click(WebDriver driver, WebDriverWait wait,
       WebElement parent, By by) {
-    wait.until(elementToBeClickable_(parent, by)).click();
+    WTFMetrics.enter(Operation.CLICK);
+    try {
+      perform(driver, wait, clickableCondition(driver, parent, by), CLICK);
+    } finally {
+      WTFMetrics.exit();
+    }
+  }
+
+  /**
+   * An interaction with an element, repeated on the element found again when
+   * the element went stale.
+   */
+  private interface Action {
+    void perform(WebDriver driver, WebElement element);
+  }
+
+  private static final Action CLICK = new Action() {
+    public void perform(WebDriver driver, WebElement element) {
+      click(driver, element);
+    }
+  };
+
+  private static final Action CLEAR = new Action() {
+    public void perform(WebDriver driver, WebElement element) {
+      element.clear();
+    }
+  };
+
+  private static Action sendKeys(final String text) {
+    return new Action() {
+      public void perform(WebDriver driver, WebElement element) {
+        element.sendKeys(text);
+      }
+    };
+  }
+
+  /**
+   * Waits for the element, then interacts with it. When the element went
+   * stale before the interaction reached it, the element cache is dropped,
+   * the element waited for again and only the interaction repeated, up to
+   * {@link WTFConfig#getStaleRetries()} times.
+   */
+  private static void perform(WebDriver driver, WebDriverWait wait,
+      ExpectedCondition<WebElement> condition, Action action) {
+    int retries = WTFConfig.of(driver).getStaleRetries();
+    while (true) {
+      WebElement element = wait.until(condition);
+      try {
+        action.perform(driver, element);
+        return;
+      } catch (StaleElementReferenceException e) {
+        if (retries-- <= 0) {
+          throw e;
+        }
+        WTFElementCache cache = WTFSession.of(driver).getElementCache();
+        if (cache != null) {
+          cache.clear();
+        }
+        WTFMetrics.staleRetry();
+      }
+    }
+  }
+
+  private static void click(WebDriver driver, WebElement element) {
+    if (WTFConfig.of(driver).getInteractionMode() == WTFConfig.InteractionMode.SCRIPT) {
+      ((JavascriptExecutor) driver).executeScript("arguments[0].click();", element);
+    } else {
+      element.click();
+    }
   }
 
   /**
@@ -115,7 +334,12 @@ public class WTFUtil {
    * @return true if present
    */
   public static Boolean present(WebDriver driver, WebDriverWait wait, By by) {
-    return wait.until(presenceOfElementLocated(by)) != null;
+    WTFMetrics.enter(Operation.PRESENT);
+    try {
+      return wait.until(presenceCondition(driver, null, by)) != null;
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -147,7 +371,12 @@ public class WTFUtil {
    */
   public static Boolean present(WebDriver driver, WebDriverWait wait,
       WebElement parent, By by) {
-    return wait.until(presenceOfElementLocated_(parent, by)) != null;
+    WTFMetrics.enter(Operation.PRESENT);
+    try {
+      return wait.until(presenceCondition(driver, parent, by)) != null;
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -180,7 +409,12 @@ public class WTFUtil {
    */
   public static Boolean notPresent(WebDriver driver, WebDriverWait wait,
       WebElement el) {
-    return wait.until(stalenessOf(el));
+    WTFMetrics.enter(Operation.NOT_PRESENT);
+    try {
+      return wait.until(stalenessOf(el));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -209,7 +443,12 @@ public class WTFUtil {
    * @return true if visible
    */
   public static Boolean visible(WebDriver driver, WebDriverWait wait, By by) {
-    return wait.until(visibilityOfElementLocated(by)) != null;
+    WTFMetrics.enter(Operation.VISIBLE);
+    try {
+      return wait.until(visibilityCondition(driver, null, by)) != null;
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -241,7 +480,12 @@ public class WTFUtil {
    */
   public static Boolean visible(WebDriver driver, WebDriverWait wait,
       WebElement parent, By by) {
-    return wait.until(visibilityOfElementLocated_(parent, by)) != null;
+    WTFMetrics.enter(Operation.VISIBLE);
+    try {
+      return wait.until(visibilityCondition(driver, parent, by)) != null;
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -272,7 +516,12 @@ public class WTFUtil {
    * @return true if invisible
    */
   public static Boolean invisible(WebDriver driver, WebDriverWait wait, By by) {
-    return wait.until(invisibilityOfElementLocated(by));
+    WTFMetrics.enter(Operation.INVISIBLE);
+    try {
+      return wait.until(invisibilityCondition(driver, null, by));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -304,7 +553,12 @@ public class WTFUtil {
    */
   public static Boolean invisible(WebDriver driver, WebDriverWait wait,
       WebElement parent, By by) {
-    return wait.until(invisibilityOfElementLocated_(parent, by));
+    WTFMetrics.enter(Operation.INVISIBLE);
+    try {
+      return wait.until(invisibilityCondition(driver, parent, by));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -336,7 +590,12 @@ public class WTFUtil {
    */
   public static WebElement findElement(WebDriver driver, WebDriverWait wait,
       By by) {
-    return wait.until(presenceOfElementLocated(by));
+    WTFMetrics.enter(Operation.FIND_ELEMENT);
+    try {
+      return wait.until(presenceCondition(driver, null, by));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -368,7 +627,12 @@ public class WTFUtil {
    */
   public static WebElement findElement(WebDriver driver, WebDriverWait wait,
       WebElement parent, By by) {
-    return wait.until(presenceOfElementLocated_(parent, by));
+    WTFMetrics.enter(Operation.FIND_ELEMENT);
+    try {
+      return wait.until(presenceCondition(driver, parent, by));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -401,7 +665,12 @@ public class WTFUtil {
    */
   public static List<WebElement> findElements(WebDriver driver,
       WebDriverWait wait, By by) {
-    return wait.until(presenceOfAllElementsLocatedBy(by));
+    WTFMetrics.enter(Operation.FIND_ELEMENTS);
+    try {
+      return wait.until(presenceOfAllElementsLocatedBy(by));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -433,7 +702,12 @@ public class WTFUtil {
    */
   public static List<WebElement> findElements(WebDriver driver,
       WebDriverWait wait, WebElement parent, By by) {
-    return wait.until(presenceOfAllElementsLocatedBy_(parent, by));
+    WTFMetrics.enter(Operation.FIND_ELEMENTS);
+    try {
+      return wait.until(presenceOfAllElementsLocatedBy_(parent, by));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -465,7 +739,12 @@ public class WTFUtil {
    * @return true if present
    */
   public static Boolean selected(WebDriver driver, WebDriverWait wait, By by) {
-    return wait.until(elementSelectionStateToBe(by, true));
+    WTFMetrics.enter(Operation.SELECTED);
+    try {
+      return wait.until(selectionCondition(driver, null, by, true));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -497,7 +776,12 @@ public class WTFUtil {
    */
   public static Boolean selected(WebDriver driver, WebDriverWait wait,
       WebElement parent, By by) {
-    return wait.until(elementSelectionStateToBe_(parent, by, true)) != null;
+    WTFMetrics.enter(Operation.SELECTED);
+    try {
+      return wait.until(selectionCondition(driver, parent, by, true)) != null;
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -528,7 +812,12 @@ public class WTFUtil {
    * @return true if present
    */
   public static Boolean notSelected(WebDriver driver, WebDriverWait wait, By by) {
-    return wait.until(elementSelectionStateToBe(by, false));
+    WTFMetrics.enter(Operation.NOT_SELECTED);
+    try {
+      return wait.until(selectionCondition(driver, null, by, false));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -560,7 +849,12 @@ public class WTFUtil {
    */
   public static Boolean notSelected(WebDriver driver, WebDriverWait wait,
       WebElement parent, By by) {
-    return wait.until(elementSelectionStateToBe_(parent, by, false));
+    WTFMetrics.enter(Operation.NOT_SELECTED);
+    try {
+      return wait.until(selectionCondition(driver, parent, by, false));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -593,7 +887,12 @@ public class WTFUtil {
    */
   public static void type(WebDriver driver, WebDriverWait wait, By by,
       String text) {
-    wait.until(visibilityOfElementLocated(by)).sendKeys(text);
+    WTFMetrics.enter(Operation.TYPE);
+    try {
+      perform(driver, wait, visibilityCondition(driver, null, by), sendKeys(text));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -627,7 +926,12 @@ public class WTFUtil {
    */
   public static void type(WebDriver driver, WebDriverWait wait,
       WebElement parent, By by, String text) {
-    wait.until(visibilityOfElementLocated_(parent, by)).sendKeys(text);
+    WTFMetrics.enter(Operation.TYPE);
+    try {
+      perform(driver, wait, visibilityCondition(driver, parent, by), sendKeys(text));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -659,7 +963,12 @@ public class WTFUtil {
    *          locator used to find the element
    */
   public static void clear(WebDriver driver, WebDriverWait wait, By by) {
-    wait.until(visibilityOfElementLocated(by)).clear();
+    WTFMetrics.enter(Operation.CLEAR);
+    try {
+      perform(driver, wait, visibilityCondition(driver, null, by), CLEAR);
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -689,7 +998,12 @@ public class WTFUtil {
    */
   public static void clear(WebDriver driver, WebDriverWait wait,
       WebElement parent, By by) {
-    wait.until(visibilityOfElementLocated_(parent, by)).clear();
+    WTFMetrics.enter(Operation.CLEAR);
+    try {
+      perform(driver, wait, visibilityCondition(driver, parent, by), CLEAR);
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -720,10 +1034,14 @@ public class WTFUtil {
    * @param text
    *          the text to be looked for
    */
-  @SuppressWarnings("deprecation")
   public static Boolean textPresent(WebDriver driver, WebDriverWait wait,
       By by, String text) {
-    return wait.until(textToBePresentInElement(by, text));
+    WTFMetrics.enter(Operation.TEXT_PRESENT);
+    try {
+      return wait.until(textCondition(driver, null, by, text));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -758,7 +1076,12 @@ public class WTFUtil {
    */
   public static Boolean textPresent(WebDriver driver, WebDriverWait wait,
       WebElement parent, By by, String text) {
-    return wait.until(textToBePresentInElement_(parent, by, text));
+    WTFMetrics.enter(Operation.TEXT_PRESENT);
+    try {
+      return wait.until(textCondition(driver, parent, by, text));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -794,7 +1117,12 @@ public class WTFUtil {
    */
   public static Boolean textNotPresent(WebDriver driver, WebDriverWait wait,
       By by, String text) {
-    return wait.until(invisibilityOfElementWithText(by, text));
+    WTFMetrics.enter(Operation.TEXT_NOT_PRESENT);
+    try {
+      return wait.until(noTextCondition(driver, null, by, text));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -829,7 +1157,12 @@ public class WTFUtil {
    */
   public static Boolean textNotPresent(WebDriver driver, WebDriverWait wait,
       WebElement parent, By by, String text) {
-    return wait.until(invisibilityOfElementWithText_(parent, by, text));
+    WTFMetrics.enter(Operation.TEXT_NOT_PRESENT);
+    try {
+      return wait.until(noTextCondition(driver, parent, by, text));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -867,8 +1200,13 @@ public class WTFUtil {
    */
   public static Boolean attributeValuePresent(WebDriver driver,
       WebDriverWait wait, By by, String attributeName, String attributeValue) {
-    return wait.until(attributeValueToBePresentInElement(by, attributeName,
-        attributeValue));
+    WTFMetrics.enter(Operation.ATTRIBUTE_VALUE_PRESENT);
+    try {
+      return wait.until(attributeCondition(driver, null, by, attributeName,
+          attributeValue));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -911,8 +1249,13 @@ public class WTFUtil {
   public static Boolean attributeValuePresent(WebDriver driver,
       WebDriverWait wait, WebElement parent, By by, String attributeName,
       String attributeValue) {
-    return wait.until(attributeValueToBePresentInElement_(parent, by,
-        attributeName, attributeValue));
+    WTFMetrics.enter(Operation.ATTRIBUTE_VALUE_PRESENT);
+    try {
+      return wait.until(attributeCondition(driver, parent, by,
+          attributeName, attributeValue));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -953,7 +1296,17 @@ public class WTFUtil {
    */
   public static String getAttributeValue(WebDriver driver, WebDriverWait wait,
       By by, String attributeName) {
-    return findElement(driver, wait, by).getAttribute(attributeName);
+    WTFMetrics.enter(Operation.GET_ATTRIBUTE_VALUE);
+    try {
+      try {
+        return findElement(driver, wait, by).getAttribute(attributeName);
+      } catch (StaleElementReferenceException e) {
+        forgetCachedElements(driver, e);
+        return findElement(driver, wait, by).getAttribute(attributeName);
+      }
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -991,7 +1344,17 @@ public class WTFUtil {
    */
   public static String getAttributeValue(WebDriver driver, WebDriverWait wait,
       WebElement parent, By by, String attributeName) {
-    return findElement(driver, wait, parent, by).getAttribute(attributeName);
+    WTFMetrics.enter(Operation.GET_ATTRIBUTE_VALUE);
+    try {
+      try {
+        return findElement(driver, wait, parent, by).getAttribute(attributeName);
+      } catch (StaleElementReferenceException e) {
+        forgetCachedElements(driver, e);
+        return findElement(driver, wait, parent, by).getAttribute(attributeName);
+      }
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -1026,7 +1389,17 @@ public class WTFUtil {
    * @return text
    */
   public static String getText(WebDriver driver, WebDriverWait wait, By by) {
-    return findElement(driver, wait, by).getText();
+    WTFMetrics.enter(Operation.GET_TEXT);
+    try {
+      try {
+        return findElement(driver, wait, by).getText();
+      } catch (StaleElementReferenceException e) {
+        forgetCachedElements(driver, e);
+        return findElement(driver, wait, by).getText();
+      }
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -1058,7 +1431,17 @@ public class WTFUtil {
    */
   public static String getText(WebDriver driver, WebDriverWait wait,
       WebElement parent, By by) {
-    return findElement(driver, wait, parent, by).getText();
+    WTFMetrics.enter(Operation.GET_TEXT);
+    try {
+      try {
+        return findElement(driver, wait, parent, by).getText();
+      } catch (StaleElementReferenceException e) {
+        forgetCachedElements(driver, e);
+        return findElement(driver, wait, parent, by).getText();
+      }
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -1089,7 +1472,12 @@ public class WTFUtil {
    * @return value
    */
   public static String getValue(WebDriver driver, WebDriverWait wait, By by) {
-    return getAttributeValue(driver, by, "value");
+    WTFMetrics.enter(Operation.GET_VALUE);
+    try {
+      return getAttributeValue(driver, wait, by, "value");
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -1121,7 +1509,12 @@ public class WTFUtil {
    */
   public static String getValue(WebDriver driver, WebDriverWait wait,
       WebElement parent, By by) {
-    return getAttributeValue(driver, wait, parent, by, "value");
+    WTFMetrics.enter(Operation.GET_VALUE);
+    try {
+      return getAttributeValue(driver, wait, parent, by, "value");
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -1140,6 +1533,301 @@ public class WTFUtil {
     return getValue(driver, getDefaultWait(driver), parent, by);
   }
 
+  /**
+   * Reads the given properties of many web elements using driver, wait and
+   * locators. The values are read in one script call when the driver can run
+   * scripts, otherwise one element at a time.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param wait
+   *          the WebDriverWait
+   * @param locators
+   *          locators used to find the elements, by name
+   * @param properties
+   *          the attribute names to read, {@link #TEXT} for the text
+   * @return the values by name, then by property
+   */
+  public static Map<String, Map<String, String>> readAll(WebDriver driver,
+      WebDriverWait wait, Map<String, By> locators, String... properties) {
+    return readAll(driver, wait, (WebElement) null, locators, properties);
+  }
+
+  /**
+   * Reads the given properties of many web elements using driver and
+   * locators.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param locators
+   *          locators used to find the elements, by name
+   * @param properties
+   *          the attribute names to read, {@link #TEXT} for the text
+   * @return the values by name, then by property
+   */
+  public static Map<String, Map<String, String>> readAll(WebDriver driver,
+      Map<String, By> locators, String... properties) {
+    return readAll(driver, getDefaultWait(driver), locators, properties);
+  }
+
+  /**
+   * Reads the given properties of many web elements inside a sub DOM using
+   * driver, wait, parent and locators.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param wait
+   *          the WebDriverWait
+   * @param parent
+   *          the sub DOM to look
+   * @param locators
+   *          locators used to find the elements, by name
+   * @param properties
+   *          the attribute names to read, {@link #TEXT} for the text
+   * @return the values by name, then by property
+   */
+  public static Map<String, Map<String, String>> readAll(WebDriver driver,
+      WebDriverWait wait, WebElement parent, Map<String, By> locators,
+      String... properties) {
+    WTFMetrics.enter(Operation.READ_ALL);
+    try {
+      if (readAllByScript(driver, locators)) {
+        return wait.until(valuesOfElementsLocatedByScript(parent, locators,
+            Arrays.asList(properties)));
+      }
+      Map<String, Map<String, String>> values = new LinkedHashMap<String, Map<String, String>>();
+      for (Map.Entry<String, By> locator : locators.entrySet()) {
+        WebElement element = parent == null ? findElement(driver, wait, locator.getValue())
+            : findElement(driver, wait, parent, locator.getValue());
+        Map<String, String> value = new LinkedHashMap<String, String>();
+        for (String property : properties) {
+          value.put(property, TEXT.equals(property) ? element.getText()
+              : element.getAttribute(property));
+        }
+        values.put(locator.getKey(), value);
+      }
+      return values;
+    } finally {
+      WTFMetrics.exit();
+    }
+  }
+
+  /**
+   * Reads the given properties of many web elements inside a sub DOM using
+   * driver, parent and locators.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param parent
+   *          the sub DOM to look
+   * @param locators
+   *          locators used to find the elements, by name
+   * @param properties
+   *          the attribute names to read, {@link #TEXT} for the text
+   * @return the values by name, then by property
+   */
+  public static Map<String, Map<String, String>> readAll(WebDriver driver,
+      WebElement parent, Map<String, By> locators, String... properties) {
+    return readAll(driver, getDefaultWait(driver), parent, locators, properties);
+  }
+
+  private static boolean readAllByScript(WebDriver driver, Map<String, By> locators) {
+    if (!(driver instanceof JavascriptExecutor)) {
+      return false;
+    }
+    for (By by : locators.values()) {
+      if (WTFScripts.locator(by) == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Fills many fields of a form at once using driver, wait and values, see
+   * {@link WTFForm}. Text fields get the text, selects the option with the
+   * given value or text, check boxes and radio buttons the given state.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param wait
+   *          the WebDriverWait
+   * @param values
+   *          the values by the locators of the fields, in filling order
+   */
+  public static void fillForm(WebDriver driver, WebDriverWait wait,
+      Map<By, ?> values) {
+    fillForm(driver, wait, null, values);
+  }
+
+  /**
+   * Fills many fields of a form at once using driver and values.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param values
+   *          the values by the locators of the fields, in filling order
+   */
+  public static void fillForm(WebDriver driver, Map<By, ?> values) {
+    fillForm(driver, getDefaultWait(driver), values);
+  }
+
+  /**
+   * Fills many fields of a form inside a sub DOM at once using driver, wait,
+   * parent and values.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param wait
+   *          the WebDriverWait
+   * @param parent
+   *          the sub DOM to look
+   * @param values
+   *          the values by the locators of the fields, in filling order
+   */
+  public static void fillForm(WebDriver driver, WebDriverWait wait,
+      WebElement parent, Map<By, ?> values) {
+    WTFForm form = new WTFForm(driver, wait, parent);
+    for (Map.Entry<By, ?> value : values.entrySet()) {
+      form.set(value.getKey(), value.getValue());
+    }
+    form.fill();
+  }
+
+  /**
+   * Fills many fields of a form inside a sub DOM at once using driver,
+   * parent and values.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param parent
+   *          the sub DOM to look
+   * @param values
+   *          the values by the locators of the fields, in filling order
+   */
+  public static void fillForm(WebDriver driver, WebElement parent,
+      Map<By, ?> values) {
+    fillForm(driver, getDefaultWait(driver), parent, values);
+  }
+
+  /**
+   * Waits for the first of many conditions to be true using driver and wait,
+   * e.g. a success banner, a validation error or a session expired dialog.
+   * Every condition is checked at each poll, within the single time out of
+   * the wait.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param wait
+   *          the WebDriverWait
+   * @param conditions
+   *          the conditions to wait for, see
+   *          {@link WTFExpectedConditions#anyOf(ExpectedCondition...)}
+   * @return the condition that came true, with its position and value
+   */
+  public static WTFBranch waitForAny(WebDriver driver, WebDriverWait wait,
+      ExpectedCondition<?>... conditions) {
+    WTFMetrics.enter(Operation.WAIT_FOR_ANY);
+    try {
+      return wait.until(anyOf(conditions));
+    } finally {
+      WTFMetrics.exit();
+    }
+  }
+
+  /**
+   * Waits for the first of many conditions to be true using driver.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param conditions
+   *          the conditions to wait for, see
+   *          {@link WTFExpectedConditions#anyOf(ExpectedCondition...)}
+   * @return the condition that came true, with its position and value
+   */
+  public static WTFBranch waitForAny(WebDriver driver, ExpectedCondition<?>... conditions) {
+    return waitForAny(driver, getDefaultWait(driver), conditions);
+  }
+
+  /**
+   * Waits for many conditions to be true together using driver and wait.
+   * Every condition is checked at each poll, within the single time out of
+   * the wait.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param wait
+   *          the WebDriverWait
+   * @param conditions
+   *          the conditions to wait for, see
+   *          {@link WTFExpectedConditions#allOf(ExpectedCondition...)}
+   * @return the values of the conditions, in order
+   */
+  public static List<Object> waitForAll(WebDriver driver, WebDriverWait wait,
+      ExpectedCondition<?>... conditions) {
+    WTFMetrics.enter(Operation.WAIT_FOR_ALL);
+    try {
+      return wait.until(allOf(conditions));
+    } finally {
+      WTFMetrics.exit();
+    }
+  }
+
+  /**
+   * Waits for many conditions to be true together using driver.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param conditions
+   *          the conditions to wait for, see
+   *          {@link WTFExpectedConditions#allOf(ExpectedCondition...)}
+   * @return the values of the conditions, in order
+   */
+  public static List<Object> waitForAll(WebDriver driver, ExpectedCondition<?>... conditions) {
+    return waitForAll(driver, getDefaultWait(driver), conditions);
+  }
+
+  /**
+   * Determines which of many web elements becomes visible first using
+   * driver, wait and locators. The elements are checked together at each
+   * poll, by a single script call when the session evaluates conditions by
+   * script.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param wait
+   *          the WebDriverWait
+   * @param bys
+   *          locators used to find the elements
+   * @return the position of the locator of the visible element
+   */
+  public static int anyVisible(WebDriver driver, WebDriverWait wait, By... bys) {
+    WTFMetrics.enter(Operation.ANY_VISIBLE);
+    try {
+      ExpectedCondition<?>[] conditions = new ExpectedCondition<?>[bys.length];
+      for (int i = 0; i < bys.length; i++) {
+        conditions[i] = visibilityCondition(driver, null, bys[i]);
+      }
+      return wait.until(anyOf(conditions)).getIndex();
+    } finally {
+      WTFMetrics.exit();
+    }
+  }
+
+  /**
+   * Determines which of many web elements becomes visible first using driver
+   * and locators.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param bys
+   *          locators used to find the elements
+   * @return the position of the locator of the visible element
+   */
+  public static int anyVisible(WebDriver driver, By... bys) {
+    return anyVisible(driver, getDefaultWait(driver), bys);
+  }
+
   /**
    * Gets the Select element using using driver, wait and locator.
    * 
@@ -1153,7 +1841,12 @@ public class WTFUtil {
    */
   public static Select getSelectElement(WebDriver driver, WebDriverWait wait,
       By by) {
-    return new Select(findElement(driver, wait, by));
+    WTFMetrics.enter(Operation.GET_SELECT_ELEMENT);
+    try {
+      return new Select(findElement(driver, wait, by));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -1185,7 +1878,12 @@ public class WTFUtil {
    */
   public static Select getSelectElement(WebDriver driver, WebDriverWait wait,
       WebElement parent, By by) {
-    return new Select(findElement(driver, wait, parent, by));
+    WTFMetrics.enter(Operation.GET_SELECT_ELEMENT);
+    try {
+      return new Select(findElement(driver, wait, parent, by));
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -1215,8 +1913,13 @@ public class WTFUtil {
    *          locator used to find the element
    */
   public static void hover(WebDriver driver, WebDriverWait wait, By by) {
-    new Actions(driver).moveToElement(findElement(driver, by)).build()
-        .perform();
+    WTFMetrics.enter(Operation.HOVER);
+    try {
+      new Actions(driver).moveToElement(findElement(driver, wait, by)).build()
+          .perform();
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -1228,7 +1931,6 @@ public class WTFUtil {
    *          locator used to find the element
    */
   public static void hover(WebDriver driver, By by) {
-    findElement(driver, by);
     hover(driver, getDefaultWait(driver), by);
   }
 
@@ -1246,8 +1948,13 @@ public class WTFUtil {
    */
   public static void hover(WebDriver driver, WebDriverWait wait,
       WebElement parent, By by) {
-    new Actions(driver).moveToElement(findElement(driver, parent, by)).build()
-        .perform();
+    WTFMetrics.enter(Operation.HOVER);
+    try {
+      new Actions(driver).moveToElement(findElement(driver, wait, parent, by))
+          .build().perform();
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -1267,7 +1974,9 @@ public class WTFUtil {
   /**
    * Use this method only when browser based scrolling is not implemented in the
    * application code Scrolls vertically If isUpward is true scrolls bottom to
-   * top and vice versa
+   * top and vice versa. The scrollbar is dragged in steps of pixelsPerDrag,
+   * all sent as one action chain; an element that scrolls natively is
+   * scrolled by script instead, as far as dragging its scrollbar would.
    * 
    * @param driver
    * @param locator
@@ -1277,26 +1986,44 @@ public class WTFUtil {
    */
   public static void scrollNonBrowserScrollersVertically(WebDriver driver,
       By locator, int vertPixelsToScroll, int pixelsPerDrag, boolean isUpward) {
-    Actions dragger = new Actions(driver);
-    WebElement draggablePartOfScrollbar = null;
-    draggablePartOfScrollbar = driver.findElement(locator);
-    if (locator != null) {
-      if (isUpward) {
-        for (int currentPos = 0; currentPos >= (0 - vertPixelsToScroll); currentPos = currentPos
-            - pixelsPerDrag) {
-          dragger.moveToElement(draggablePartOfScrollbar).clickAndHold()
-              .moveByOffset(0, currentPos).release().perform();
-          draggablePartOfScrollbar = driver.findElement(locator);
-        }
-      } else {
-        for (int currentPos = 0; currentPos <= vertPixelsToScroll; currentPos = currentPos
-            + pixelsPerDrag) {
-          dragger.moveToElement(draggablePartOfScrollbar).clickAndHold()
-              .moveByOffset((currentPos - pixelsPerDrag), currentPos).release()
-              .perform();
-          draggablePartOfScrollbar = driver.findElement(locator);
-        }
-      }
+    WTFMetrics.enter(Operation.SCROLL_NON_BROWSER_SCROLLERS_VERTICALLY);
+    try {
+      scroll(driver, findElement(driver, locator), true,
+          isUpward ? -vertPixelsToScroll : vertPixelsToScroll, pixelsPerDrag);
+    } finally {
+      WTFMetrics.exit();
+    }
+  }
+
+  /**
+   * Scrolls vertically in steps of pixelsPerDrag until the target element is
+   * visible, like
+   * {@link #scrollNonBrowserScrollersVertically(WebDriver, By, int, int, boolean)}.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param locator
+   *          locator of the draggable part of the scrollbar, or of the
+   *          element scrolling natively
+   * @param target
+   *          locator of the element to bring into view
+   * @param pixelsPerDrag
+   *          the pixels to scroll per step
+   * @param isUpward
+   *          true to scroll bottom to top
+   * @return true once the target is visible
+   * @throws TimeoutException
+   *           if the scroller reaches its end or the wait time out is over
+   *           before the target is visible
+   */
+  public static Boolean scrollNonBrowserScrollersVertically(WebDriver driver,
+      By locator, By target, int pixelsPerDrag, boolean isUpward) {
+    WTFMetrics.enter(Operation.SCROLL_NON_BROWSER_SCROLLERS_VERTICALLY);
+    try {
+      return scrollUntilVisible(driver, findElement(driver, locator), true,
+          isUpward ? -pixelsPerDrag : pixelsPerDrag, target);
+    } finally {
+      WTFMetrics.exit();
     }
   }
 
@@ -1304,6 +2031,9 @@ public class WTFUtil {
    * Use this method only when browser based scrolling is not implemented in the
    * application code. Scrolls horizontally If isRightToLeft parameter is true
    * then it will scroll from right to left, else it will scroll left to right.
+   * The scrollbar is dragged in steps of pixelsPerDrag, all sent as one action
+   * chain; an element that scrolls natively is scrolled by script instead, as
+   * far as dragging its scrollbar would.
    * 
    * @param driver
    * @param locator
@@ -1314,23 +2044,169 @@ public class WTFUtil {
   public static void scrollNonBrowserScrollersHorizontally(WebDriver driver,
       By locator, int horPixelsToScroll, int pixelsPerDrag,
       boolean isRightToLeft) {
-    Actions dragger = new Actions(driver);
-    WebElement draggablePartOfScrollbar = driver.findElement(locator);
-    if (locator != null) {
-      if (isRightToLeft) {
-        for (int currentPos = 0; currentPos >= (0 - horPixelsToScroll); currentPos = currentPos
-            - pixelsPerDrag) {
-          dragger.moveToElement(draggablePartOfScrollbar).clickAndHold()
-              .moveByOffset(currentPos, 0).release().perform();
-        }
-      } else {
-        for (int currentPos = 0; currentPos <= horPixelsToScroll; currentPos = currentPos
-            + pixelsPerDrag) {
-          dragger.moveToElement(draggablePartOfScrollbar).clickAndHold()
-              .moveByOffset(currentPos, 0).release().perform();
+    WTFMetrics.enter(Operation.SCROLL_NON_BROWSER_SCROLLERS_HORIZONTALLY);
+    try {
+      scroll(driver, findElement(driver, locator), false,
+          isRightToLeft ? -horPixelsToScroll : horPixelsToScroll, pixelsPerDrag);
+    } finally {
+      WTFMetrics.exit();
+    }
+  }
+
+  /**
+   * Scrolls horizontally in steps of pixelsPerDrag until the target element
+   * is visible, like
+   * {@link #scrollNonBrowserScrollersHorizontally(WebDriver, By, int, int, boolean)}.
+   * 
+   * @param driver
+   *          the WebDriver
+   * @param locator
+   *          locator of the draggable part of the scrollbar, or of the
+   *          element scrolling natively
+   * @param target
+   *          locator of the element to bring into view
+   * @param pixelsPerDrag
+   *          the pixels to scroll per step
+   * @param isRightToLeft
+   *          true to scroll right to left
+   * @return true once the target is visible
+   * @throws TimeoutException
+   *           if the scroller reaches its end or the wait time out is over
+   *           before the target is visible
+   */
+  public static Boolean scrollNonBrowserScrollersHorizontally(WebDriver driver,
+      By locator, By target, int pixelsPerDrag, boolean isRightToLeft) {
+    WTFMetrics.enter(Operation.SCROLL_NON_BROWSER_SCROLLERS_HORIZONTALLY);
+    try {
+      return scrollUntilVisible(driver, findElement(driver, locator), false,
+          isRightToLeft ? -pixelsPerDrag : pixelsPerDrag, target);
+    } finally {
+      WTFMetrics.exit();
+    }
+  }
+
+  /**
+   * Scrolls the element by the given pixels if it scrolls natively on the
+   * axis, the pixels being those the scrollbar would be dragged by. Before
+   * scrolling, tells whether the target, if any, is visible in it.
+   * Answers null if the element does not scroll natively, otherwise
+   * "visible", "moved" or "end".
+   */
+  private static final String SCROLL_SCRIPT = WTFScripts.script(""
+      + "var e = arguments[0], vertical = arguments[1];\n"
+      + "var style = wtf.view(e).getComputedStyle(e);\n"
+      + "var overflow = vertical ? style.overflowY : style.overflowX;\n"
+      + "var size = vertical ? e.clientHeight : e.clientWidth;\n"
+      + "var full = vertical ? e.scrollHeight : e.scrollWidth;\n"
+      + "if ((overflow !== 'auto' && overflow !== 'scroll') || full <= size) { return null; }\n"
+      + "if (arguments[3]) {\n"
+      + "  var t = wtf.first(null, arguments[3], arguments[4]);\n"
+      + "  if (t && wtf.shown(t)) {\n"
+      + "    var box = e.getBoundingClientRect(), seen = t.getBoundingClientRect();\n"
+      + "    if (vertical ? seen.bottom > box.top && seen.top < box.bottom\n"
+      + "        : seen.right > box.left && seen.left < box.right) {\n"
+      + "      return 'visible';\n"
+      + "    }\n"
+      + "  }\n"
+      + "}\n"
+      + "var before = vertical ? e.scrollTop : e.scrollLeft;\n"
+      + "var after = before + Math.round(arguments[2] * full / size);\n"
+      + "if (vertical) { e.scrollTop = after; } else { e.scrollLeft = after; }\n"
+      + "return (vertical ? e.scrollTop : e.scrollLeft) !== before ? 'moved' : 'end';");
+
+  private static String scrollByScript(WebDriver driver, WebElement scroller,
+      boolean vertical, int pixels, List<String> target) {
+    if (!(driver instanceof JavascriptExecutor)) {
+      return null;
+    }
+    return (String) WTFScripts.execute(driver, SCROLL_SCRIPT, scroller, vertical, pixels,
+        target != null ? target.get(0) : null, target != null ? target.get(1) : null);
+  }
+
+  /**
+   * Scrolls by script, or drags the scrollbar when the element does not
+   * scroll natively.
+   */
+  private static void scroll(WebDriver driver, WebElement scroller, boolean vertical,
+      int pixels, int pixelsPerDrag) {
+    if (scrollByScript(driver, scroller, vertical, pixels, null) == null) {
+      drag(driver, scroller, vertical, pixels, pixelsPerDrag);
+    }
+  }
+
+  /**
+   * Drags the scrollbar by the given pixels in steps of pixelsPerDrag as one
+   * action chain, so that it is grabbed and released once.
+   */
+  private static void drag(WebDriver driver, WebElement scroller, boolean vertical,
+      int pixels, int pixelsPerDrag) {
+    int step = pixelsPerDrag > 0 ? pixelsPerDrag : Math.max(Math.abs(pixels), 1);
+    Actions dragger = new Actions(driver).moveToElement(scroller).clickAndHold();
+    for (int moved = 0; moved < Math.abs(pixels); moved += step) {
+      int move = Integer.signum(pixels) * Math.min(step, Math.abs(pixels) - moved);
+      dragger.moveByOffset(vertical ? 0 : move, vertical ? move : 0);
+    }
+    dragger.release().perform();
+  }
+
+  /**
+   * Scrolls a step at a time until the target is visible. An element that
+   * scrolls natively is checked and scrolled by one script per step. The
+   * scrolling counts against the time out of the operation and the
+   * {@link WTFDeadline} of the thread, like a wait.
+   */
+  private static Boolean scrollUntilVisible(WebDriver driver, WebElement scroller,
+      boolean vertical, int pixels, By target) {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WTFDeadline.budgetInMillis(
+        TimeUnit.SECONDS.toMillis(WTFConfig.of(driver).getTimeoutInSeconds())));
+    List<String> using = WTFScripts.supports(driver, target) ? WTFScripts.locator(target)
+        : null;
+    String scrolled = using != null
+        ? scrollByScript(driver, scroller, vertical, pixels, using) : null;
+    if (scrolled != null) {
+      while (!"visible".equals(scrolled)) {
+        if ("end".equals(scrolled) || System.nanoTime() - deadline > 0) {
+          throw notVisibleAfterScrolling(target, scroller);
         }
+        scrolled = scrollByScript(driver, scroller, vertical, pixels, using);
+      }
+      return true;
+    }
+    // null until the first step tells whether the element scrolls natively
+    Boolean natively = using != null ? Boolean.FALSE : null;
+    while (!visibleNow(driver, target)) {
+      if (System.nanoTime() - deadline > 0) {
+        throw notVisibleAfterScrolling(target, scroller);
+      }
+      boolean moved = false;
+      if (!Boolean.FALSE.equals(natively)) {
+        scrolled = scrollByScript(driver, scroller, vertical, pixels, null);
+        natively = scrolled != null;
+        moved = "moved".equals(scrolled);
+      }
+      if (!natively) {
+        Point before = scroller.getLocation();
+        drag(driver, scroller, vertical, pixels, pixels);
+        moved = !scroller.getLocation().equals(before);
+      }
+      if (!moved) {
+        throw notVisibleAfterScrolling(target, scroller);
       }
     }
+    return true;
+  }
+
+  private static TimeoutException notVisibleAfterScrolling(By target, WebElement scroller) {
+    return new TimeoutException(String.format(
+        "Element located by %s not visible after scrolling %s", target, scroller));
+  }
+
+  private static boolean visibleNow(WebDriver driver, By target) {
+    try {
+      return visibilityCondition(driver, null, target).apply(driver) != null;
+    } catch (NotFoundException e) {
+      return false;
+    }
   }
 
   /**
@@ -1340,8 +2216,13 @@ public class WTFUtil {
    * @param driver
    */
   public static void scrollToBottom(WebDriver driver) {
-    ((JavascriptExecutor) driver)
-        .executeScript("window.scrollTo(0,document.body.scrollHeight);");
+    WTFMetrics.enter(Operation.SCROLL_TO_BOTTOM);
+    try {
+      ((JavascriptExecutor) driver)
+          .executeScript("window.scrollTo(0,document.body.scrollHeight);");
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -1351,8 +2232,13 @@ public class WTFUtil {
    * @param driver
    */
   public static void scrollTop(WebDriver driver) {
-    ((JavascriptExecutor) driver)
-        .executeScript("return document.documentElement.scrollTop");
+    WTFMetrics.enter(Operation.SCROLL_TOP);
+    try {
+      ((JavascriptExecutor) driver)
+          .executeScript("return document.documentElement.scrollTop");
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   public static int getRandomIndexForDD(int min, int max) {
@@ -1372,10 +2258,15 @@ public class WTFUtil {
    */
 
   public static void selectOptionFromDropDown(WebDriver driver, By by) {
-    WebElement select = driver.findElement(by);
-    List<WebElement> options = select.findElements(By.tagName("option"));
-    int randomIndexToSelect = getRandomIndexForDD(1, options.size());
-    options.get(randomIndexToSelect).click();
+    WTFMetrics.enter(Operation.SELECT_OPTION_FROM_DROP_DOWN);
+    try {
+      WebElement select = findElement(driver, by);
+      List<WebElement> options = select.findElements(By.tagName("option"));
+      int randomIndexToSelect = getRandomIndexForDD(1, options.size());
+      options.get(randomIndexToSelect).click();
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -1388,13 +2279,18 @@ public class WTFUtil {
    */
   public static void selectOptionFromDropDown(WebDriver driver, By by,
       String optionToSelect) {
-    WebElement select = driver.findElement(by);
-    List<WebElement> options = select.findElements(By.tagName("option"));
-    for (WebElement option : options) {
-      if (optionToSelect.equals(option.getText())) {
-        option.click();
-        break;
+    WTFMetrics.enter(Operation.SELECT_OPTION_FROM_DROP_DOWN);
+    try {
+      WebElement select = findElement(driver, by);
+      List<WebElement> options = select.findElements(By.tagName("option"));
+      for (WebElement option : options) {
+        if (optionToSelect.equals(option.getText())) {
+          option.click();
+          break;
+        }
       }
+    } finally {
+      WTFMetrics.exit();
     }
   }
 
@@ -1409,9 +2305,14 @@ public class WTFUtil {
    */
   public static void selectOptionFromDropDown(WebDriver driver, By by,
       String optionToSelect, int optIdx) {
-    WebElement select = driver.findElement(by);
-    List<WebElement> options = select.findElements(By.tagName("option"));
-    options.get(optIdx).click();
+    WTFMetrics.enter(Operation.SELECT_OPTION_FROM_DROP_DOWN);
+    try {
+      WebElement select = findElement(driver, by);
+      List<WebElement> options = select.findElements(By.tagName("option"));
+      options.get(optIdx).click();
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
   /**
@@ -1423,10 +2324,15 @@ public class WTFUtil {
    * @param by
    */
   public static void selectOptionRandomlyFromMenuList(WebDriver driver, By by) {
-    List<WebElement> allSelectableOptions = driver.findElements(by);
-    int randomIndexToSelect = getRandomIndexForDD(1,
-        allSelectableOptions.size());
-    allSelectableOptions.get(randomIndexToSelect).click();
+    WTFMetrics.enter(Operation.SELECT_OPTION_RANDOMLY_FROM_MENU_LIST);
+    try {
+      List<WebElement> allSelectableOptions = findElements(driver, by);
+      int randomIndexToSelect = getRandomIndexForDD(1,
+          allSelectableOptions.size());
+      allSelectableOptions.get(randomIndexToSelect).click();
+    } finally {
+      WTFMetrics.exit();
+    }
   }
 
 }
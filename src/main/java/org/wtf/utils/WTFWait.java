@@ -0,0 +1,324 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.UnsupportedCommandException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import com.google.common.base.Function;
+
+/**
+ * WTF wait. A WebDriverWait whose delay between polls comes from a
+ * {@link WTFPolling} strategy instead of a fixed interval. It can be passed
+ * to every WTFUtil overload taking a wait, and is what the default overloads
+ * use. Like WebDriverWait it ignores NotFoundException while polling, and
+ * the time out, polling interval, message and ignored exceptions set through
+ * the FluentWait methods apply; a polling interval set that way replaces the
+ * polling strategy with a fixed one.
+ * <p/>
+ * In the PUSH wait mode ({@link WTFConfig#setWaitMode}) a script condition
+ * that is not true at the first poll is awaited in the page instead, by a
+ * single asynchronous script. Drivers without asynchronous scripts keep
+ * polling.
+ * <p/>
+ * The implicit wait of the session, when declared through
+ * {@link WTFConfig#setImplicitWaitInMillis}, is set to 0 while polling. A
+ * wait never outlasts the {@link WTFDeadline} of the thread, nor the time
+ * out counted from the start of the WTFUtil operation it is part of.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+public class WTFWait extends WebDriverWait {
+
+  /** Lets an asynchronous script outlive its own time out before WebDriver gives up. */
+  private static final long PUSH_MARGIN_IN_MILLIS = 5000L;
+
+  /**
+   * Stands for the driver of a session wait in WebDriverWait, which would
+   * hold it strongly. WTFWait never polls through WebDriverWait.
+   */
+  private static final WebDriver DETACHED = (WebDriver) Proxy.newProxyInstance(
+      WebDriver.class.getClassLoader(), new Class<?>[] { WebDriver.class },
+      new InvocationHandler() {
+        public Object invoke(Object proxy, Method method, Object[] args)
+            throws IllegalAccessException, InvocationTargetException {
+          if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(this, args);
+          }
+          throw new UnsupportedOperationException("A session wait polls its own driver");
+        }
+      });
+
+  private final WebDriver driver;
+  private final WeakReference<WebDriver> sessionDriver;
+  private final WTFTuner tuner;
+
+  // Set through the FluentWait methods, the first time from the WebDriverWait
+  // constructor, so these have no initializers.
+  private volatile long timeoutInMillis;
+  private volatile WTFPolling polling;
+  private volatile String message;
+  private volatile List<Class<? extends Throwable>> ignored;
+
+  /**
+   * @param driver
+   *          the WebDriver
+   * @param timeoutInSeconds
+   *          the time out in seconds
+   * @param polling
+   *          the strategy deciding the delay between polls
+   */
+  public WTFWait(WebDriver driver, long timeoutInSeconds, WTFPolling polling) {
+    this(driver, timeoutInSeconds, polling, null);
+  }
+
+  /**
+   * @param driver
+   *          the WebDriver
+   * @param timeoutInSeconds
+   *          the time out in seconds
+   * @param polling
+   *          the strategy deciding the delay between polls
+   * @param tuner
+   *          learns from this wait and shortens its first delay and time out
+   *          per condition, or null
+   */
+  public WTFWait(WebDriver driver, long timeoutInSeconds, WTFPolling polling,
+      WTFTuner tuner) {
+    super(driver, timeoutInSeconds);
+    this.driver = driver;
+    this.sessionDriver = null;
+    this.timeoutInMillis = TimeUnit.SECONDS.toMillis(timeoutInSeconds);
+    this.polling = polling;
+    this.tuner = tuner;
+  }
+
+  /**
+   * The wait a session keeps for its driver, holding the driver weakly so
+   * that the session may keep the wait strongly.
+   */
+  WTFWait(WeakReference<WebDriver> sessionDriver, long timeoutInSeconds, WTFPolling polling,
+      WTFTuner tuner) {
+    super(DETACHED, timeoutInSeconds);
+    this.driver = null;
+    this.sessionDriver = sessionDriver;
+    this.timeoutInMillis = TimeUnit.SECONDS.toMillis(timeoutInSeconds);
+    this.polling = polling;
+    this.tuner = tuner;
+  }
+
+  private WebDriver getDriver() {
+    WebDriver current = driver != null ? driver : sessionDriver.get();
+    if (current == null) {
+      throw new IllegalStateException("The driver of the wait is gone");
+    }
+    return current;
+  }
+
+  public long getTimeoutInSeconds() {
+    return TimeUnit.MILLISECONDS.toSeconds(timeoutInMillis);
+  }
+
+  public long getTimeoutInMillis() {
+    return timeoutInMillis;
+  }
+
+  public WTFPolling getPolling() {
+    return polling;
+  }
+
+  public WTFTuner getTuner() {
+    return tuner;
+  }
+
+  public WTFWait withTimeout(long duration, TimeUnit unit) {
+    super.withTimeout(duration, unit);
+    timeoutInMillis = unit.toMillis(duration);
+    return this;
+  }
+
+  public WTFWait pollingEvery(long duration, TimeUnit unit) {
+    super.pollingEvery(duration, unit);
+    polling = WTFPolling.fixed(unit.toMillis(duration));
+    return this;
+  }
+
+  public WTFWait withMessage(String message) {
+    super.withMessage(message);
+    this.message = message;
+    return this;
+  }
+
+  public <K extends Throwable> WTFWait ignoreAll(Collection<Class<? extends K>> types) {
+    super.ignoreAll(types);
+    if (ignored == null) {
+      ignored = new CopyOnWriteArrayList<Class<? extends Throwable>>();
+    }
+    ignored.addAll(types);
+    return this;
+  }
+
+  /**
+   * @return true if the exception is one of those ignored while polling
+   */
+  boolean isIgnored(Throwable e) {
+    for (Class<? extends Throwable> type : ignored) {
+      if (type.isInstance(e)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the message of a time out after the given time waiting for the
+   *         condition, with the message set on the wait if any
+   */
+  String timeoutMessage(long timeoutInMillis, Object condition) {
+    String text = message;
+    return String.format("Timed out after %d ms%s", timeoutInMillis,
+        text != null ? ": " + text : " waiting for " + condition);
+  }
+
+  /**
+   * Repeatedly applies the condition until it returns neither null nor false,
+   * sleeping between polls as the polling strategy says.
+   */
+  public <V> V until(Function<? super WebDriver, V> isTrue) {
+    WebDriver driver = getDriver();
+    WTFSession session = WTFSession.of(driver);
+    session.suppressImplicitWait(driver);
+    WTFFailureLog.waitStarted();
+    boolean timedOut = false;
+    try {
+      return poll(driver, isTrue);
+    } catch (TimeoutException e) {
+      timedOut = true;
+      throw e;
+    } finally {
+      WTFFailureLog.waitEnded(isTrue, timedOut);
+      session.restoreImplicitWait(driver);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <V> V poll(WebDriver driver, Function<? super WebDriver, V> isTrue) {
+    String condition = tuner != null ? isTrue.toString() : null;
+    long timeoutInMillis = this.timeoutInMillis;
+    WTFPolling polling = this.polling;
+    long budgetInMillis = WTFDeadline.budgetInMillis(timeoutInMillis);
+    if (tuner != null) {
+      timeoutInMillis = tuner.timeoutInMillis(condition, timeoutInMillis);
+    }
+    WTFDeadline deadline = WTFDeadline.current();
+    boolean budgeted = budgetInMillis < timeoutInMillis;
+    if (budgeted) {
+      timeoutInMillis = budgetInMillis;
+    }
+    long timeoutInNanos = TimeUnit.MILLISECONDS.toNanos(timeoutInMillis);
+    long start = System.nanoTime();
+    RuntimeException lastException = null;
+    WTFSession session = null;
+    if (isTrue instanceof WTFScriptCondition
+        && WTFConfig.of(driver).getWaitMode() == WTFConfig.WaitMode.PUSH) {
+      session = WTFSession.of(driver);
+    }
+    int poll = 0;
+    while (true) {
+      WTFMetrics.poll();
+      try {
+        V value = isTrue.apply(driver);
+        if (value != null && !Boolean.FALSE.equals(value)) {
+          record(condition, isTrue, deadline, System.nanoTime() - start, false);
+          return value;
+        }
+      } catch (RuntimeException e) {
+        if (!isIgnored(e)) {
+          throw e;
+        }
+        lastException = e;
+      }
+      poll++;
+      long elapsedInNanos = System.nanoTime() - start;
+      long remainingInNanos = timeoutInNanos - elapsedInNanos;
+      if (remainingInNanos <= 0) {
+        record(condition, isTrue, deadline, elapsedInNanos, true);
+        WTFMetrics.timeout();
+        String message = timeoutMessage(timeoutInMillis, isTrue);
+        if (budgeted) {
+          message += deadline != null ? ", at the end of the " + deadline.report()
+              : ", at the end of the time out of the operation";
+        }
+        throw timeoutException(message, lastException);
+      }
+      if (session != null && session.supportsAsyncScripts()) {
+        // the await is the rest of this poll, not one more
+        long pushTimeoutInMillis = TimeUnit.NANOSECONDS.toMillis(remainingInNanos) + 1;
+        try {
+          session.ensureScriptTimeout(driver, timeoutInMillis + PUSH_MARGIN_IN_MILLIS);
+          V value = (V) ((WTFScriptCondition<?>) isTrue).awaitInPage(driver, pushTimeoutInMillis);
+          if (value != null && !Boolean.FALSE.equals(value)) {
+            record(condition, isTrue, deadline, System.nanoTime() - start, false);
+            return value;
+          }
+          if (System.nanoTime() - start >= timeoutInNanos) {
+            // the time is over: poll once more before timing out
+            continue;
+          }
+          // the page failed the condition early, poll after the usual delay
+        } catch (UnsupportedCommandException e) {
+          session.asyncScriptsUnsupported();
+        } catch (TimeoutException e) {
+          session.resetScriptTimeout();
+        } catch (WebDriverException e) {
+          // the page navigated away while waiting, poll after the usual delay
+        }
+        remainingInNanos = Math.max(timeoutInNanos - (System.nanoTime() - start), 0);
+      }
+      long delayInMillis = polling.delayInMillis(poll);
+      if (poll == 1 && tuner != null) {
+        delayInMillis = tuner.firstDelayInMillis(condition, delayInMillis);
+      }
+      sleep(Math.min(TimeUnit.MILLISECONDS.toNanos(delayInMillis), remainingInNanos));
+    }
+  }
+
+  /**
+   * Records how long the condition took to become true, or to time out, in
+   * the tuner and the deadline.
+   */
+  private void record(String condition, Object isTrue, WTFDeadline deadline,
+      long elapsedInNanos, boolean timedOut) {
+    long elapsedInMillis = TimeUnit.NANOSECONDS.toMillis(elapsedInNanos);
+    if (tuner != null) {
+      tuner.record(condition, elapsedInMillis);
+    }
+    if (deadline != null) {
+      deadline.step(isTrue, elapsedInMillis, timedOut);
+    }
+  }
+
+  private static void sleep(long nanos) {
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new WebDriverException(e);
+    }
+  }
+}
@@ -0,0 +1,433 @@
+/**
+ * Copyright (C) 2014 WTF org.
+ */
+
+package org.wtf.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.TextNode;
+
+/**
+ * The XPath locators a {@link WTFSnapshot} answers: location paths of child
+ * ({@code /}), descendant ({@code //}), self ({@code .}) and parent
+ * ({@code ..}) steps on element names or {@code *}, with predicates made
+ * of positions, {@code last()}, {@code @name}, {@code text()}, {@code .},
+ * relative paths, string and number literals, {@code =}, {@code !=},
+ * {@code and}, {@code or} and the functions {@code not}, {@code contains},
+ * {@code starts-with}, {@code normalize-space} and {@code position}, e.g.
+ * {@code //div[@class='row'][2]//a[contains(text(), 'Edit')]}. The string
+ * value of an element is its text with the white space normalized.
+ *
+ * @author venkatesan.sundramurthy@gmail.com (Venkatesan Sundramurthy)
+ */
+final class WTFXPath {
+
+  /**
+   * A parsed expression, evaluated against an element at a position of its
+   * step. Answers a String, Double, Boolean, or the List of the string
+   * values of a node set.
+   */
+  private interface Expression {
+    Object evaluate(Element element, int position, int size);
+  }
+
+  private static final class Step {
+
+    private final boolean descendants;
+    private final String name;
+    private final List<Expression> predicates = new ArrayList<Expression>();
+
+    Step(boolean descendants, String name) {
+      this.descendants = descendants;
+      this.name = name;
+    }
+  }
+
+  private final String xpath;
+  private final List<String> tokens = new ArrayList<String>();
+  private int next;
+
+  private WTFXPath(String xpath) {
+    this.xpath = xpath;
+    tokenize();
+  }
+
+  /**
+   * @param root
+   *          the document, or the element relative paths start from
+   * @param xpath
+   *          the location path
+   * @return the elements located, in document order
+   * @throws IllegalArgumentException
+   *           if the expression is not one of the supported ones
+   */
+  static List<Element> select(Element root, String xpath) {
+    WTFXPath parser = new WTFXPath(xpath);
+    boolean absolute = parser.peek("/") || parser.peek("//");
+    List<Step> steps = parser.path();
+    if (parser.next < parser.tokens.size()) {
+      throw parser.unsupported();
+    }
+    Element start = absolute ? root.ownerDocument() : root;
+    return evaluate(steps, Collections.singletonList(start == null ? root : start));
+  }
+
+  private static List<Element> evaluate(List<Step> steps, List<Element> context) {
+    for (Step step : steps) {
+      Map<Element, Boolean> found = new IdentityHashMap<Element, Boolean>();
+      for (Element element : context) {
+        if (step.descendants) {
+          for (Element descendant : element.getAllElements()) {
+            apply(step, descendant, found);
+          }
+        } else {
+          apply(step, element, found);
+        }
+      }
+      context = inDocumentOrder(context, found);
+    }
+    return context;
+  }
+
+  private static void apply(Step step, Element element, Map<Element, Boolean> found) {
+    List<Element> candidates = new ArrayList<Element>();
+    if (".".equals(step.name)) {
+      candidates.add(element);
+    } else if ("..".equals(step.name)) {
+      if (element.parent() != null) {
+        candidates.add(element.parent());
+      }
+    } else {
+      for (Element child : element.children()) {
+        if ("*".equals(step.name) || child.tagName().equalsIgnoreCase(step.name)) {
+          candidates.add(child);
+        }
+      }
+    }
+    for (Expression predicate : step.predicates) {
+      List<Element> kept = new ArrayList<Element>();
+      for (int i = 0; i < candidates.size(); i++) {
+        Object value = predicate.evaluate(candidates.get(i), i + 1, candidates.size());
+        if (value instanceof Double ? ((Double) value).intValue() == i + 1 : truth(value)) {
+          kept.add(candidates.get(i));
+        }
+      }
+      candidates = kept;
+    }
+    for (Element candidate : candidates) {
+      found.put(candidate, Boolean.TRUE);
+    }
+  }
+
+  private static List<Element> inDocumentOrder(List<Element> context,
+      Map<Element, Boolean> found) {
+    if (found.size() < 2) {
+      return new ArrayList<Element>(found.keySet());
+    }
+    Element top = context.get(0);
+    while (top.parent() != null) {
+      top = top.parent();
+    }
+    List<Element> ordered = new ArrayList<Element>(found.size());
+    for (Element element : top.getAllElements()) {
+      if (found.containsKey(element)) {
+        ordered.add(element);
+      }
+    }
+    return ordered;
+  }
+
+  private static boolean truth(Object value) {
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    } else if (value instanceof List) {
+      return !((List<?>) value).isEmpty();
+    } else if (value instanceof Double) {
+      return (Double) value != 0 && !((Double) value).isNaN();
+    }
+    return !((String) value).isEmpty();
+  }
+
+  private static String string(Object value) {
+    if (value instanceof List) {
+      return ((List<?>) value).isEmpty() ? "" : (String) ((List<?>) value).get(0);
+    } else if (value instanceof Double) {
+      double number = (Double) value;
+      return number == Math.rint(number) ? String.valueOf((long) number) : value.toString();
+    }
+    return String.valueOf(value);
+  }
+
+  private static boolean equal(Object left, Object right) {
+    if (left instanceof List) {
+      for (Object each : (List<?>) left) {
+        if (equal(each, right)) {
+          return true;
+        }
+      }
+      return false;
+    } else if (right instanceof List) {
+      return equal(right, left);
+    } else if (left instanceof Boolean || right instanceof Boolean) {
+      return truth(left) == truth(right);
+    } else if (left instanceof Double || right instanceof Double) {
+      try {
+        return Double.parseDouble(string(left).trim()) == Double.parseDouble(string(right)
+            .trim());
+      } catch (NumberFormatException e) {
+        return false;
+      }
+    }
+    return left.equals(right);
+  }
+
+  private static String normalize(String text) {
+    return text.replaceAll("\\s+", " ").trim();
+  }
+
+  private void tokenize() {
+    int i = 0;
+    while (i < xpath.length()) {
+      char c = xpath.charAt(i);
+      int start = i;
+      if (Character.isWhitespace(c)) {
+        i++;
+        continue;
+      } else if (c == '\'' || c == '"') {
+        i = xpath.indexOf(c, i + 1);
+        if (i < 0) {
+          throw unsupported();
+        }
+        i++;
+      } else if (xpath.startsWith("//", i) || xpath.startsWith("..", i)
+          || xpath.startsWith("!=", i)) {
+        i += 2;
+      } else if (Character.isDigit(c)) {
+        while (i < xpath.length()
+            && (Character.isDigit(xpath.charAt(i)) || xpath.charAt(i) == '.')) {
+          i++;
+        }
+      } else if (Character.isLetter(c) || c == '_' || c == '*') {
+        i++;
+        while (i < xpath.length() && c != '*') {
+          char part = xpath.charAt(i);
+          if (!Character.isLetterOrDigit(part) && part != '-' && part != '_' && part != '.') {
+            break;
+          }
+          i++;
+        }
+      } else {
+        i++;
+      }
+      tokens.add(xpath.substring(start, i));
+    }
+  }
+
+  private boolean peek(String token) {
+    return next < tokens.size() && tokens.get(next).equals(token);
+  }
+
+  private boolean accept(String token) {
+    if (peek(token)) {
+      next++;
+      return true;
+    }
+    return false;
+  }
+
+  private String take() {
+    if (next >= tokens.size()) {
+      throw unsupported();
+    }
+    return tokens.get(next++);
+  }
+
+  private void expect(String token) {
+    if (!accept(token)) {
+      throw unsupported();
+    }
+  }
+
+  private IllegalArgumentException unsupported() {
+    return new IllegalArgumentException("Unsupported XPath in a snapshot: " + xpath);
+  }
+
+  private List<Step> path() {
+    List<Step> steps = new ArrayList<Step>();
+    boolean descendants = accept("//");
+    if (!descendants) {
+      accept("/");
+    }
+    do {
+      String name = take();
+      if (!".".equals(name) && !"..".equals(name) && !"*".equals(name)
+          && !Character.isLetter(name.charAt(0)) && name.charAt(0) != '_'
+          || peek("(")) {
+        throw unsupported();
+      }
+      Step step = new Step(descendants, name);
+      while (accept("[")) {
+        step.predicates.add(or());
+        expect("]");
+      }
+      steps.add(step);
+      descendants = peek("//");
+    } while (accept("//") || accept("/"));
+    return steps;
+  }
+
+  private Expression or() {
+    final Expression left = and();
+    if (!accept("or")) {
+      return left;
+    }
+    final Expression right = or();
+    return new Expression() {
+      public Object evaluate(Element element, int position, int size) {
+        return truth(left.evaluate(element, position, size))
+            || truth(right.evaluate(element, position, size));
+      }
+    };
+  }
+
+  private Expression and() {
+    final Expression left = comparison();
+    if (!accept("and")) {
+      return left;
+    }
+    final Expression right = and();
+    return new Expression() {
+      public Object evaluate(Element element, int position, int size) {
+        return truth(left.evaluate(element, position, size))
+            && truth(right.evaluate(element, position, size));
+      }
+    };
+  }
+
+  private Expression comparison() {
+    final Expression left = value();
+    final boolean negated = peek("!=");
+    if (!accept("=") && !accept("!=")) {
+      return left;
+    }
+    final Expression right = value();
+    return new Expression() {
+      public Object evaluate(Element element, int position, int size) {
+        return negated != equal(left.evaluate(element, position, size),
+            right.evaluate(element, position, size));
+      }
+    };
+  }
+
+  private Expression value() {
+    if (next >= tokens.size()) {
+      throw unsupported();
+    }
+    String token = tokens.get(next);
+    char first = token.charAt(0);
+    if (first == '\'' || first == '"') {
+      next++;
+      final String literal = token.substring(1, token.length() - 1);
+      return constant(literal);
+    } else if (Character.isDigit(first)) {
+      next++;
+      return constant(Double.valueOf(token));
+    } else if (accept("(")) {
+      Expression inner = or();
+      expect(")");
+      return inner;
+    } else if (accept("@")) {
+      final String name = take();
+      return new Expression() {
+        public Object evaluate(Element element, int position, int size) {
+          return element.hasAttr(name) ? Collections.singletonList(element.attr(name))
+              : Collections.emptyList();
+        }
+      };
+    } else if (next + 1 < tokens.size() && tokens.get(next + 1).equals("(")) {
+      next += 2;
+      return function(token);
+    }
+    final List<Step> steps = path();
+    return new Expression() {
+      public Object evaluate(Element element, int position, int size) {
+        List<String> values = new ArrayList<String>();
+        for (Element found : WTFXPath.evaluate(steps, Collections.singletonList(element))) {
+          values.add(found.text());
+        }
+        return values;
+      }
+    };
+  }
+
+  private Expression function(String name) {
+    final List<Expression> arguments = new ArrayList<Expression>();
+    if (!accept(")")) {
+      do {
+        arguments.add(or());
+      } while (accept(","));
+      expect(")");
+    }
+    if ("text".equals(name) && arguments.isEmpty()) {
+      return new Expression() {
+        public Object evaluate(Element element, int position, int size) {
+          List<String> values = new ArrayList<String>();
+          for (TextNode text : element.textNodes()) {
+            values.add(text.getWholeText());
+          }
+          return values;
+        }
+      };
+    } else if ("position".equals(name) && arguments.isEmpty()) {
+      return new Expression() {
+        public Object evaluate(Element element, int position, int size) {
+          return (double) position;
+        }
+      };
+    } else if ("last".equals(name) && arguments.isEmpty()) {
+      return new Expression() {
+        public Object evaluate(Element element, int position, int size) {
+          return (double) size;
+        }
+      };
+    } else if ("not".equals(name) && arguments.size() == 1) {
+      return new Expression() {
+        public Object evaluate(Element element, int position, int size) {
+          return !truth(arguments.get(0).evaluate(element, position, size));
+        }
+      };
+    } else if ("normalize-space".equals(name) && arguments.size() <= 1) {
+      return new Expression() {
+        public Object evaluate(Element element, int position, int size) {
+          return normalize(arguments.isEmpty() ? element.text()
+              : string(arguments.get(0).evaluate(element, position, size)));
+        }
+      };
+    } else if (("contains".equals(name) || "starts-with".equals(name))
+        && arguments.size() == 2) {
+      final boolean contains = "contains".equals(name);
+      return new Expression() {
+        public Object evaluate(Element element, int position, int size) {
+          String text = string(arguments.get(0).evaluate(element, position, size));
+          String part = string(arguments.get(1).evaluate(element, position, size));
+          return contains ? text.contains(part) : text.startsWith(part);
+        }
+      };
+    }
+    throw unsupported();
+  }
+
+  private static Expression constant(final Object value) {
+    return new Expression() {
+      public Object evaluate(Element element, int position, int size) {
+        return value;
+      }
+    };
+  }
+}
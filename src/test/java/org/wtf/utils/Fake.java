@@ -0,0 +1,96 @@
+package org.wtf.utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+/**
+ * A scriptable fake of the WebDriver interfaces for the tests, like the
+ * FakeWebDriver of the benchmarks but built as a proxy, so that a fake may
+ * implement any mix of interfaces. A fake is only equal to itself and named
+ * by its toString; every other call is left to its answer. Calls the answer
+ * leaves unanswered return null, false or 0, except the accessors of other
+ * WebDriver interfaces, e.g. manage() or getMouse(), which return a fake of
+ * that interface with the same answer.
+ */
+final class Fake {
+
+  /**
+   * Answers the calls on a fake.
+   */
+  interface Answer {
+
+    /**
+     * @param fake
+     *          the fake called, whose toString is its name
+     * @param called
+     *          the name of the method called
+     * @param args
+     *          the arguments, or null
+     * @return the answer, or null for the default one
+     */
+    Object answer(Object fake, String called, Object[] args) throws Throwable;
+  }
+
+  /** Leaves every call to the defaults. */
+  static final Answer NOTHING = new Answer() {
+    public Object answer(Object fake, String called, Object[] args) {
+      return null;
+    }
+  };
+
+  private Fake() {
+    // Fakes are created through of(...)
+  }
+
+  static WebDriver driver(Answer answer, Class<?>... more) {
+    return (WebDriver) of("driver", answer, WebDriver.class, more);
+  }
+
+  static WebElement element(String name, Answer answer, Class<?>... more) {
+    return (WebElement) of(name, answer, WebElement.class, more);
+  }
+
+  /**
+   * @return a fake of the given interfaces
+   */
+  static Object of(final String name, final Answer answer, Class<?> type, Class<?>... more) {
+    Class<?>[] types = new Class<?>[more.length + 1];
+    types[0] = type;
+    System.arraycopy(more, 0, types, 1, more.length);
+    return Proxy.newProxyInstance(Fake.class.getClassLoader(), types, new InvocationHandler() {
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String called = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+          if ("equals".equals(called)) {
+            return proxy == args[0];
+          }
+          return "hashCode".equals(called) ? System.identityHashCode(proxy) : name;
+        }
+        Object answered = answer.answer(proxy, called, args);
+        return answered != null ? answered : defaultAnswer(method, args, answer);
+      }
+    });
+  }
+
+  private static Object defaultAnswer(Method method, Object[] args, Answer answer) {
+    Class<?> returned = method.getReturnType();
+    if (returned == boolean.class) {
+      return false;
+    } else if (returned == int.class) {
+      return 0;
+    } else if (returned == long.class) {
+      return 0L;
+    } else if (returned == double.class) {
+      return 0d;
+    } else if ((args == null || args.length == 0) && returned.isInterface()
+        && returned.getName().startsWith("org.openqa.selenium")
+        && returned != WebDriver.class && returned != WebElement.class) {
+      return of(returned.getSimpleName(), answer, returned);
+    }
+    return null;
+  }
+}
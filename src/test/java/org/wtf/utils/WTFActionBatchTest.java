@@ -0,0 +1,64 @@
+package org.wtf.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.interactions.HasInputDevices;
+import org.openqa.selenium.interactions.Keyboard;
+import org.openqa.selenium.interactions.Mouse;
+import org.openqa.selenium.internal.Locatable;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class WTFActionBatchTest {
+
+  private final List<String> log = new ArrayList<String>();
+
+  /** The elements the resolve script answers, one list per call. */
+  private final LinkedList<List<WebElement>> resolved = new LinkedList<List<WebElement>>();
+
+  /** Logs the scripts and the input device calls. */
+  private final Fake.Answer page = new Fake.Answer() {
+    public Object answer(Object fake, String called, Object[] args) {
+      if ("executeScript".equals(called)) {
+        log.add("script");
+        return resolved.removeFirst();
+      } else if (fake instanceof Mouse || fake instanceof Keyboard) {
+        log.add(called);
+      }
+      return null;
+    }
+  };
+
+  private WebElement element(String name) {
+    return Fake.element(name, page, Locatable.class);
+  }
+
+  public void testReadyStepsAreChained() {
+    WebDriver driver = Fake.driver(page, JavascriptExecutor.class, HasInputDevices.class);
+    WebElement menu = element("menu");
+    WebElement submenu = element("submenu");
+    WebElement item = element("item");
+
+    // the submenu only shows once the menu is hovered
+    resolved.add(Arrays.asList(menu));
+    resolved.add(Arrays.asList(submenu, item));
+
+    new WTFActionBatch(driver).hover(By.id("menu")).hover(By.id("submenu"))
+        .click(By.id("item")).perform();
+
+    Assert.assertEquals(log.get(0), "script");
+    Assert.assertEquals(log.get(1), "mouseMove");
+    Assert.assertEquals(log.get(2), "script");
+    Assert.assertFalse(log.subList(3, log.size()).contains("script"));
+    Assert.assertEquals(log.get(log.size() - 1), "click");
+  }
+}
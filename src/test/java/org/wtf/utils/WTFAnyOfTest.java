@@ -0,0 +1,100 @@
+package org.wtf.utils;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class WTFAnyOfTest {
+
+  private static ExpectedCondition<Object> constant(final Object value) {
+    return new ExpectedCondition<Object>() {
+      public Object apply(WebDriver driver) {
+        return value;
+      }
+    };
+  }
+
+  private static final ExpectedCondition<Object> MISSING = new ExpectedCondition<Object>() {
+    public Object apply(WebDriver driver) {
+      throw new NoSuchElementException("missing");
+    }
+  };
+
+  public void testAnyOfReturnsTheFirstTrueBranch() {
+    ExpectedCondition<?> banner = constant("banner");
+    WTFBranch branch = WTFExpectedConditions.anyOf(MISSING, constant(false), banner,
+        constant("dialog")).apply(null);
+    Assert.assertEquals(branch.getIndex(), 2);
+    Assert.assertEquals(branch.getValue(), "banner");
+    Assert.assertSame(branch.getCondition(), banner);
+  }
+
+  public void testAnyOfIsNullWhileNoBranchIsTrue() {
+    Assert.assertNull(WTFExpectedConditions.anyOf(MISSING, constant(null), constant(false))
+        .apply(null));
+  }
+
+  public void testAllOf() {
+    List<Object> values = WTFExpectedConditions.allOf(constant("a"), constant(true))
+        .apply(null);
+    Assert.assertEquals(values, Arrays.<Object> asList("a", true));
+    Assert.assertNull(WTFExpectedConditions.allOf(constant("a"), MISSING).apply(null));
+    Assert.assertNull(WTFExpectedConditions.allOf(constant("a"), constant(false)).apply(null));
+  }
+
+  public void testScriptConditionsAreCombined() {
+    ExpectedCondition<?> any = WTFExpectedConditions.anyOf(
+        WTFExpectedConditions.visibilityOfElementLocatedByScript(null, By.id("banner")),
+        WTFExpectedConditions.visibilityOfElementLocatedByScript(null, By.id("error")));
+    Assert.assertTrue(any instanceof WTFScriptCondition);
+    Assert.assertFalse(WTFExpectedConditions.anyOf(constant(null),
+        WTFExpectedConditions.visibilityOfElementLocatedByScript(null, By.id("error")))
+        instanceof WTFScriptCondition);
+  }
+
+  public void testNestedScriptConditionsAreConverted() {
+    // the anyOf script, true by its first branch, itself true by its second
+    // branch; then the allOf script
+    final Iterator<Object> results = Arrays.<Object> asList(
+        Arrays.asList(0L, Arrays.asList(1L, "error")),
+        Arrays.asList(Arrays.asList(1L, "error"), "dialog")).iterator();
+    WebDriver driver = Fake.driver(new Fake.Answer() {
+      public Object answer(Object fake, String called, Object[] args) {
+        return "executeScript".equals(called) ? results.next() : null;
+      }
+    }, JavascriptExecutor.class);
+    ExpectedCondition<?> banner =
+        WTFExpectedConditions.visibilityOfElementLocatedByScript(null, By.id("banner"));
+    ExpectedCondition<?> error =
+        WTFExpectedConditions.visibilityOfElementLocatedByScript(null, By.id("error"));
+    ExpectedCondition<?> dialog =
+        WTFExpectedConditions.visibilityOfElementLocatedByScript(null, By.id("dialog"));
+    ExpectedCondition<?> nested = WTFExpectedConditions.anyOf(banner, error);
+
+    WTFBranch branch = WTFExpectedConditions.anyOf(nested, dialog).apply(driver);
+    Assert.assertEquals(branch.getIndex(), 0);
+    WTFBranch inner = (WTFBranch) branch.getValue();
+    Assert.assertEquals(inner.getIndex(), 1);
+    Assert.assertEquals(inner.getValue(), "error");
+    Assert.assertSame(inner.getCondition(), error);
+
+    List<Object> values = WTFExpectedConditions.allOf(nested, dialog).apply(driver);
+    Assert.assertEquals(((WTFBranch) values.get(0)).getValue(), "error");
+    Assert.assertEquals(values.get(1), "dialog");
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testAnyOfNothing() {
+    WTFExpectedConditions.anyOf();
+  }
+}
@@ -0,0 +1,94 @@
+package org.wtf.utils;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+
+
+@Test
+public class WTFAsyncTest {
+
+  private final WTFAsync async = new WTFAsync(Executors.newScheduledThreadPool(2));
+
+  private final WebDriver driver = Fake.driver(Fake.NOTHING);
+
+  private WTFWait newWait(long timeoutInSeconds) {
+    return new WTFWait(driver, timeoutInSeconds, WTFPolling.fixed(10));
+  }
+
+  /**
+   * True from the given poll on, not found before.
+   */
+  private static Function<WebDriver, String> trueFrom(final int poll,
+      final AtomicInteger polls) {
+    return new Function<WebDriver, String>() {
+      public String apply(WebDriver driver) {
+        if (polls.incrementAndGet() < poll) {
+          throw new NoSuchElementException("not yet");
+        }
+        return "done";
+      }
+    };
+  }
+
+  public void testUntil() throws Exception {
+    AtomicInteger polls = new AtomicInteger();
+    Future<String> future = async.until(driver, newWait(5), trueFrom(3, polls));
+    Assert.assertEquals(future.get(5, TimeUnit.SECONDS), "done");
+    Assert.assertEquals(polls.get(), 3);
+  }
+
+  public void testTimeout() throws Exception {
+    Future<String> future = async.until(driver, newWait(1),
+        trueFrom(Integer.MAX_VALUE, new AtomicInteger()));
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      Assert.fail();
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof TimeoutException);
+      Assert.assertTrue(e.getCause().getCause() instanceof NoSuchElementException);
+    }
+  }
+
+  public void testCancelStopsPolling() throws Exception {
+    AtomicInteger polls = new AtomicInteger();
+    Future<String> future = async.until(driver, newWait(30), trueFrom(Integer.MAX_VALUE, polls));
+    Thread.sleep(50);
+    Assert.assertTrue(future.cancel(false));
+    Thread.sleep(50);
+    int cancelledAt = polls.get();
+    Thread.sleep(100);
+    Assert.assertEquals(polls.get(), cancelledAt);
+    try {
+      future.get();
+      Assert.fail();
+    } catch (CancellationException e) {
+      // expected
+    }
+  }
+
+  public void testConditionFailure() throws Exception {
+    Future<Object> future = async.until(driver, newWait(5), new Function<WebDriver, Object>() {
+      public Object apply(WebDriver driver) {
+        throw new IllegalStateException("broken");
+      }
+    });
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      Assert.fail();
+    } catch (ExecutionException e) {
+      Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+    }
+  }
+}
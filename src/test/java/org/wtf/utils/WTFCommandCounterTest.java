@@ -0,0 +1,70 @@
+package org.wtf.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.WrapsDriver;
+import org.openqa.selenium.internal.WrapsElement;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wtf.utils.WTFMetrics.Operation;
+
+
+@Test
+public class WTFCommandCounterTest {
+
+  /** Finds a new element at each lookup, which knows its driver like a RemoteWebElement. */
+  private static final Fake.Answer PAGE = new Fake.Answer() {
+    public Object answer(Object fake, String called, Object[] args) {
+      return "findElement".equals(called) ? Fake.element("button", this, WrapsDriver.class)
+          : null;
+    }
+  };
+
+  public void testCommandsAreCountedByOperation() {
+    WebDriver driver = WTFCommandCounter.wrap(Fake.driver(PAGE));
+    WTFCommandCounter counter = WTFCommandCounter.of(driver);
+
+    // two calls of the same operation, each sending two commands
+    for (int i = 0; i < 2; i++) {
+      WTFMetrics.enter(Operation.CLICK);
+      try {
+        WebElement element = driver.findElement(By.id("button"));
+        element.click();
+      } finally {
+        WTFMetrics.exit();
+      }
+    }
+
+    // a command outside any operation, reached without a command
+    driver.manage().timeouts().implicitlyWait(0, TimeUnit.SECONDS);
+
+    Assert.assertEquals(counter.getCalls(Operation.CLICK), 2L);
+    Assert.assertEquals(counter.getCommands(Operation.CLICK), 4L);
+    Assert.assertEquals(counter.getCommands(Operation.CLICK, "findElement"), 2L);
+    Assert.assertEquals(counter.getCommands(Operation.CLICK, "click"), 2L);
+    Assert.assertTrue(counter.report().contains(WTFCommandCounter.OUTSIDE));
+    Assert.assertTrue(counter.report().contains("implicitlyWait"));
+    Assert.assertFalse(counter.report().contains("manage"));
+
+    counter.reset();
+    Assert.assertEquals(counter.getCommands(Operation.CLICK), 0L);
+  }
+
+  public void testElementsAreDecorated() {
+    WebDriver target = Fake.driver(PAGE);
+    WebDriver driver = WTFCommandCounter.wrap(target);
+
+    WebElement element = driver.findElement(By.id("button"));
+    Assert.assertTrue(element instanceof WrapsElement);
+    Assert.assertFalse(((WrapsElement) element).getWrappedElement() instanceof WrapsElement);
+    Assert.assertEquals(element, element);
+    Assert.assertSame(((WrapsDriver) element).getWrappedDriver(), driver);
+    Assert.assertSame(((WrapsDriver) driver).getWrappedDriver(), target);
+
+    Assert.assertTrue(WTFCommandCounter.isCounting(driver));
+    Assert.assertFalse(WTFCommandCounter.isCounting(target));
+  }
+}
@@ -0,0 +1,134 @@
+package org.wtf.utils;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import org.wtf.utils.WTFMetrics.Operation;
+
+import com.google.common.base.Function;
+
+
+@Test
+public class WTFDeadlineTest {
+
+  private final WebDriver driver = Fake.driver(Fake.NOTHING);
+
+  private static final Function<WebDriver, Boolean> NEVER = new Function<WebDriver, Boolean>() {
+    public Boolean apply(WebDriver driver) {
+      return false;
+    }
+
+    public String toString() {
+      return "never";
+    }
+  };
+
+  /**
+   * True once the given time passed since the first poll.
+   */
+  private static Function<WebDriver, Boolean> after(final long millis) {
+    return new Function<WebDriver, Boolean>() {
+      private long start;
+
+      public Boolean apply(WebDriver driver) {
+        if (start == 0) {
+          start = System.nanoTime();
+        }
+        return System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(millis);
+      }
+    };
+  }
+
+  private WTFWait newWait(long timeoutInSeconds) {
+    return new WTFWait(driver, timeoutInSeconds, WTFPolling.fixed(10));
+  }
+
+  public void testDeadlineShortensWaits() {
+    WTFDeadline deadline = WTFDeadline.start(300, TimeUnit.MILLISECONDS);
+    long start = System.nanoTime();
+    try {
+      newWait(1).until(after(100));
+      newWait(5).until(NEVER);
+      Assert.fail("Expected a time out");
+    } catch (TimeoutException e) {
+      Assert.assertTrue(e.getMessage().contains("at the end of the deadline of 300 ms"),
+          e.getMessage());
+    } finally {
+      deadline.end();
+    }
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    Assert.assertEquals(deadline.getSteps().size(), 2);
+    Assert.assertTrue(deadline.getSteps().get(1).startsWith("never: "));
+    Assert.assertTrue(deadline.getSteps().get(1).endsWith("(timed out)"));
+    Assert.assertNull(WTFDeadline.current());
+  }
+
+  public void testOperationSharesOneTimeOut() {
+    long start = System.nanoTime();
+    WTFMetrics.enter(Operation.HOVER);
+    try {
+      newWait(1).until(after(600));
+      newWait(1).until(NEVER);
+      Assert.fail("Expected a time out");
+    } catch (TimeoutException e) {
+      Assert.assertTrue(e.getMessage().contains("time out of the operation"), e.getMessage());
+    } finally {
+      WTFMetrics.exit();
+    }
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1500));
+  }
+
+  public void testScrollingCountsAgainstTheDeadline() {
+    // a scroller that always moves, and a target never in view
+    WebDriver page = Fake.driver(new Fake.Answer() {
+      public Object answer(Object fake, String called, Object[] args) {
+        if ("findElements".equals(called)) {
+          return Collections.singletonList(Fake.element("scroller", this));
+        } else if ("isDisplayed".equals(called)) {
+          return true;
+        } else if ("executeScript".equals(called)) {
+          return ((Object[]) args[1]).length == 5 ? "moved" : null;
+        }
+        return null;
+      }
+    }, JavascriptExecutor.class);
+    WTFDeadline deadline = WTFDeadline.start(200, TimeUnit.MILLISECONDS);
+    long start = System.nanoTime();
+    try {
+      WTFUtil.scrollNonBrowserScrollersVertically(page, By.id("list"), By.id("last"), 50, false);
+      Assert.fail("Expected a time out");
+    } catch (TimeoutException expected) {
+      // the deadline is over
+    } finally {
+      deadline.end();
+    }
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+  }
+
+  public void testNestedDeadlineEndsWithTheOuterOne() {
+    WTFDeadline outer = WTFDeadline.start(100, TimeUnit.MILLISECONDS);
+    try {
+      WTFDeadline inner = WTFDeadline.start(10, TimeUnit.SECONDS);
+      try {
+        Assert.assertTrue(inner.getRemainingMillis() <= 100);
+        try {
+          outer.end();
+          Assert.fail("Expected the inner deadline to end first");
+        } catch (IllegalStateException expected) {
+          // the inner deadline is current
+        }
+      } finally {
+        inner.end();
+      }
+      Assert.assertSame(WTFDeadline.current(), outer);
+    } finally {
+      outer.end();
+    }
+  }
+}
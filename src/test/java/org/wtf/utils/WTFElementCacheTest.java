@@ -0,0 +1,138 @@
+package org.wtf.utils;
+
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.WrapsDriver;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.RemoteWebElement;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class WTFElementCacheTest {
+
+  /**
+   * A driver that only knows its URL, and counts how often it is asked.
+   */
+  private static class Page implements Fake.Answer {
+
+    private String url = "http://example.com/a";
+    private int urlChecks;
+
+    public Object answer(Object fake, String called, Object[] args) {
+      if ("getCurrentUrl".equals(called)) {
+        urlChecks++;
+        return url;
+      }
+      throw new UnsupportedOperationException(called);
+    }
+  }
+
+  /** Answers no call at all. */
+  private static final Fake.Answer UNSUPPORTED = new Fake.Answer() {
+    public Object answer(Object fake, String called, Object[] args) {
+      throw new UnsupportedOperationException(called);
+    }
+  };
+
+  private static WebDriver driver(Page page) {
+    return Fake.driver(page);
+  }
+
+  private static WebElement element() {
+    return Fake.element("element", UNSUPPORTED);
+  }
+
+  public void testParentIsPartOfTheKey() {
+    WebDriver driver = driver(new Page());
+    WTFElementCache cache = new WTFElementCache(10);
+    WebElement parent = element();
+    WebElement inPage = element();
+    WebElement inParent = element();
+
+    cache.put(driver, null, By.className("header"), inPage);
+    cache.put(driver, parent, By.className("header"), inParent);
+
+    Assert.assertSame(cache.get(driver, null, By.className("header")), inPage);
+    Assert.assertSame(cache.get(driver, parent, By.className("header")), inParent);
+    Assert.assertNull(cache.get(driver, element(), By.className("header")));
+    Assert.assertNull(cache.get(driver, null, By.className("footer")));
+  }
+
+  public void testLeastRecentlyUsedIsEvicted() {
+    WebDriver driver = driver(new Page());
+    WTFElementCache cache = new WTFElementCache(2);
+    WebElement first = element();
+
+    cache.put(driver, null, By.id("first"), first);
+    cache.put(driver, null, By.id("second"), element());
+
+    // using the first makes the second the eldest
+    Assert.assertSame(cache.get(driver, null, By.id("first")), first);
+    cache.put(driver, null, By.id("third"), element());
+
+    Assert.assertEquals(cache.size(), 2);
+    Assert.assertSame(cache.get(driver, null, By.id("first")), first);
+    Assert.assertNull(cache.get(driver, null, By.id("second")));
+  }
+
+  public void testUrlChangeClearsTheCache() throws Exception {
+    Page page = new Page();
+    WebDriver driver = driver(page);
+    WTFElementCache cache = new WTFElementCache(10);
+    WebElement header = element();
+
+    cache.put(driver, null, By.id("header"), header);
+    Assert.assertEquals(page.urlChecks, 1);
+
+    // the URL is not checked again within the interval
+    page.url = "http://example.com/b";
+    Assert.assertSame(cache.get(driver, null, By.id("header")), header);
+    Assert.assertEquals(page.urlChecks, 1);
+
+    // once the interval is over, the new URL empties the cache
+    Thread.sleep(WTFElementCache.URL_CHECK_INTERVAL_IN_MILLIS + 50);
+    Assert.assertNull(cache.get(driver, null, By.id("header")));
+    Assert.assertEquals(page.urlChecks, 2);
+  }
+
+  private static RemoteWebElement remoteElement(RemoteWebDriver driver, String id) {
+    RemoteWebElement element = new RemoteWebElement();
+    element.setParent(driver);
+    element.setId(id);
+    return element;
+  }
+
+  public void testRemoteElementsAreKeptById() {
+    RemoteWebDriver driver = new RemoteWebDriver() {
+      public String getCurrentUrl() {
+        return "http://example.com/a";
+      }
+    };
+    WTFElementCache cache = new WTFElementCache(10);
+    cache.put(driver, null, By.id("header"), remoteElement(driver, "42"));
+    cache.put(driver, remoteElement(driver, "7"), By.id("title"), remoteElement(driver, "43"));
+
+    // nothing else holds the elements, nor the parent
+    System.gc();
+
+    WebElement header = cache.get(driver, null, By.id("header"));
+    Assert.assertEquals(((RemoteWebElement) header).getId(), "42");
+    Assert.assertSame(((WrapsDriver) header).getWrappedDriver(), driver);
+    WebElement title = cache.get(driver, remoteElement(driver, "7"), By.id("title"));
+    Assert.assertEquals(((RemoteWebElement) title).getId(), "43");
+  }
+
+  public void testClear() {
+    WebDriver driver = driver(new Page());
+    WTFElementCache cache = new WTFElementCache(10);
+
+    Assert.assertFalse(cache.clear());
+    cache.put(driver, null, By.id("header"), element());
+    Assert.assertTrue(cache.clear());
+    Assert.assertNull(cache.get(driver, null, By.id("header")));
+  }
+}
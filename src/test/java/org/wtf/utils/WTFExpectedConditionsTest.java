@@ -0,0 +1,138 @@
+package org.wtf.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+@Test
+public class WTFExpectedConditionsTest {
+
+  private final List<String> log = new ArrayList<String>();
+
+  /** What findElements answers; findElement is never expected. */
+  private List<WebElement> found;
+
+  /** What findElements throws instead, if not null. */
+  private RuntimeException failure;
+
+  /** An element of a page rendered again since it was found. */
+  private Object gone;
+
+  private WebDriver driver;
+
+  private Fake.Answer page(final boolean displayed) {
+    return new Fake.Answer() {
+      public Object answer(Object fake, String called, Object[] args) {
+        if ("findElement".equals(called)) {
+          throw new AssertionError("findElement throws when nothing is found");
+        }
+        log.add(called);
+        if (fake == gone) {
+          throw new StaleElementReferenceException("rendered again");
+        } else if ("findElements".equals(called)) {
+          if (failure != null) {
+            throw failure;
+          }
+          return found;
+        } else if ("isDisplayed".equals(called)) {
+          return displayed;
+        }
+        return null;
+      }
+    };
+  }
+
+  private WebElement element() {
+    return Fake.element("element", page(true));
+  }
+
+  @BeforeMethod
+  public void setUp() {
+    log.clear();
+    found = Collections.emptyList();
+    gone = null;
+    failure = null;
+    driver = Fake.driver(page(false));
+  }
+
+  public void testMissingElementIsNotThereYet() {
+    Assert.assertNull(WTFExpectedConditions.visibilityOfElementLocated_(null, By.id("a"))
+        .apply(driver));
+    Assert.assertNull(WTFExpectedConditions.presenceOfElementLocated_(null, By.id("a"))
+        .apply(driver));
+    Assert.assertTrue(WTFExpectedConditions.invisibilityOfElementLocated_(null, By.id("a"))
+        .apply(driver));
+  }
+
+  public void testOnlyStaleLookupsAreAbsent() {
+    failure = new StaleElementReferenceException("rendered again");
+    Assert.assertNull(WTFExpectedConditions.presenceOfElementLocated_(null, By.id("a"))
+        .apply(driver));
+    failure = new WebDriverException("session deleted");
+    try {
+      WTFExpectedConditions.presenceOfElementLocated_(null, By.id("a")).apply(driver);
+      Assert.fail("Expected the failure of the lookup");
+    } catch (WebDriverException e) {
+      Assert.assertSame(e, failure);
+    }
+  }
+
+  public void testInvisibilityLooksUpOnce() {
+    found = Collections.singletonList(element());
+    Assert.assertFalse(WTFExpectedConditions.invisibilityOfElementLocated_(null, By.id("a"))
+        .apply(driver));
+    Assert.assertEquals(log.toString(), "[findElements, isDisplayed]");
+  }
+
+  public void testCachedElementCostsNoCommand() {
+    WTFConfig.of(driver).setElementCacheSize(10);
+    WebElement first = element();
+    found = Collections.singletonList(first);
+    ExpectedCondition<WebElement> present =
+        WTFExpectedConditions.presenceOfElementLocated_(null, By.id("a"));
+    Assert.assertSame(present.apply(driver), first);
+    log.clear();
+    Assert.assertSame(present.apply(driver), first);
+    Assert.assertTrue(log.isEmpty(), log.toString());
+
+    // the first use of the element finds it stale, which drops the cache
+    gone = first;
+    WebElement second = element();
+    found = Collections.singletonList(second);
+    ExpectedCondition<WebElement> visible =
+        WTFExpectedConditions.visibilityOfElementLocated_(null, By.id("a"));
+    Assert.assertNull(visible.apply(driver));
+    Assert.assertSame(visible.apply(driver), second);
+  }
+
+  public void testConditionsAreComparable() {
+    Assert.assertEquals(WTFExpectedConditions.elementToBeClickable_(null, By.id("a")),
+        WTFExpectedConditions.elementToBeClickable_(null, By.id("a")));
+    Assert.assertEquals(WTFExpectedConditions.elementToBeClickable_(null, By.id("a")).hashCode(),
+        WTFExpectedConditions.elementToBeClickable_(null, By.id("a")).hashCode());
+    Assert.assertEquals(WTFExpectedConditions.textToBePresentInElement_(null, By.id("a"), "x"),
+        WTFExpectedConditions.textToBePresentInElement_(null, By.id("a"), "x"));
+    Assert.assertFalse(WTFExpectedConditions.textToBePresentInElement_(null, By.id("a"), "x")
+        .equals(WTFExpectedConditions.textToBePresentInElement_(null, By.id("a"), "y")));
+
+    WebElement parent = element();
+    Assert.assertEquals(WTFExpectedConditions.visibilityOfElementLocated_(parent, By.id("a")),
+        WTFExpectedConditions.visibilityOfElementLocated_(parent, By.id("a")));
+    Assert.assertFalse(WTFExpectedConditions.visibilityOfElementLocated_(parent, By.id("a"))
+        .equals(WTFExpectedConditions.visibilityOfElementLocated_(null, By.id("a"))));
+    Assert.assertEquals(
+        WTFExpectedConditions.visibilityOfElementLocatedByScript(parent, By.id("a")),
+        WTFExpectedConditions.visibilityOfElementLocatedByScript(parent, By.id("a")));
+  }
+}
@@ -0,0 +1,83 @@
+package org.wtf.utils;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+@Test
+public class WTFFailureLogTest {
+
+  private final Logger log = Logger.getLogger(WTFExpectedConditions.class.getName());
+  private final List<LogRecord> records = new ArrayList<LogRecord>();
+  private final Handler handler = new Handler() {
+    public void publish(LogRecord record) {
+      records.add(record);
+    }
+
+    public void flush() {
+    }
+
+    public void close() {
+    }
+  };
+
+  private WebDriver driver;
+
+  @BeforeMethod
+  public void setUp() {
+    records.clear();
+    log.setUseParentHandlers(false);
+    log.addHandler(handler);
+    driver = Fake.driver(Fake.NOTHING);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    log.removeHandler(handler);
+    log.setUseParentHandlers(true);
+  }
+
+  private static String message(LogRecord record) {
+    return MessageFormat.format(record.getMessage(), record.getParameters());
+  }
+
+  public void testRepeatedFailuresAreSummedUp() {
+    By by = By.id("flaky");
+    WTFFailureLog.waitStarted();
+    for (int i = 0; i < 50; i++) {
+      WTFFailureLog.failure(driver, by, new StaleElementReferenceException("stale"));
+    }
+    WTFFailureLog.failure(driver, by, new WebDriverException("other"));
+    Assert.assertEquals(records.size(), 2);
+    Assert.assertNotNull(records.get(0).getThrown());
+
+    WTFFailureLog.waitEnded("the banner", true);
+    Assert.assertEquals(records.size(), 3);
+    Assert.assertNull(records.get(2).getThrown());
+    Assert.assertEquals(message(records.get(2)), "StaleElementReferenceException thrown 50 "
+        + "times by findElement(By.id: flaky) while waiting for the banner (timed out), "
+        + "49 not logged");
+  }
+
+  public void testSilencedLevelIsNotFormatted() {
+    WTFConfig.of(driver).setLogLevel(Level.OFF);
+    WTFFailureLog.waitStarted();
+    WTFFailureLog.failure(driver, By.id("silenced"), new WebDriverException("failed"));
+    WTFFailureLog.waitEnded("the banner", false);
+    Assert.assertTrue(records.isEmpty());
+  }
+}
@@ -0,0 +1,58 @@
+package org.wtf.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class WTFFormTest {
+
+  private final List<String> log = new ArrayList<String>();
+
+  /** What the fill script answers. */
+  private List<?> errors = Collections.emptyList();
+
+  private final Fake.Answer page = new Fake.Answer() {
+    public Object answer(Object fake, String called, Object[] args) {
+      if ("executeScript".equals(called)) {
+        log.add("script " + ((List<?>) ((Object[]) args[1])[1]).size());
+        return errors;
+      } else if ("findElements".equals(called)) {
+        return Collections.singletonList(Fake.element("field", this));
+      } else if ("isDisplayed".equals(called)) {
+        return true;
+      } else if ("sendKeys".equals(called)) {
+        log.add("sendKeys " + ((CharSequence[]) args[0])[0]);
+      } else if ("clear".equals(called)) {
+        log.add("clear");
+      }
+      return null;
+    }
+  };
+
+  private WebDriver driver() {
+    return Fake.driver(page, JavascriptExecutor.class);
+  }
+
+  public void testConsecutiveFieldsAreFilledByOneScript() {
+    new WTFForm(driver()).set(By.id("name"), "John").set(By.id("terms"), true)
+        .keys(By.id("card"), "4111").set(By.name("city"), "Paris")
+        .set(By.cssSelector("#zip"), "75001").fill();
+
+    Assert.assertEquals(log.toString(), "[script 2, clear, sendKeys 4111, script 2]");
+  }
+
+  @Test(expectedExceptions = NoSuchElementException.class)
+  public void testMissingOption() {
+    errors = Collections.singletonList(1L);
+    new WTFForm(driver()).set(By.id("name"), "John").set(By.id("country"), "Atlantis").fill();
+  }
+}
@@ -0,0 +1,95 @@
+package org.wtf.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Function;
+
+
+@Test
+public class WTFImplicitWaitTest {
+
+  private final List<String> log = new ArrayList<String>();
+
+  private WebDriver driver;
+
+  @BeforeMethod
+  public void setUp() {
+    log.clear();
+    driver = Fake.driver(new Fake.Answer() {
+      public Object answer(Object fake, String called, Object[] args) {
+        if ("implicitlyWait".equals(called)) {
+          log.add("implicitlyWait " + args[0]);
+        }
+        return null;
+      }
+    });
+  }
+
+  private WTFWait newWait() {
+    return new WTFWait(driver, 1, WTFPolling.fixed(10));
+  }
+
+  public void testNestedWaitsSuppressOnce() {
+    WTFConfig.of(driver).setImplicitWaitInMillis(5000L);
+    String value = newWait().until(new Function<WebDriver, String>() {
+      public String apply(WebDriver driver) {
+        Assert.assertEquals(log.toString(), "[implicitlyWait 0]");
+        return newWait().until(new Function<WebDriver, String>() {
+          public String apply(WebDriver driver) {
+            return "done";
+          }
+        });
+      }
+    });
+    Assert.assertEquals(value, "done");
+    Assert.assertEquals(log.toString(), "[implicitlyWait 0, implicitlyWait 5000]");
+  }
+
+  public void testRestoredAfterTimeOut() {
+    WTFConfig.of(driver).setImplicitWaitInMillis(5000L);
+    try {
+      new WTFWait(driver, 0, WTFPolling.fixed(10)).until(new Function<WebDriver, String>() {
+        public String apply(WebDriver driver) {
+          return null;
+        }
+      });
+      Assert.fail("Expected a time out");
+    } catch (TimeoutException e) {
+      Assert.assertEquals(log.toString(), "[implicitlyWait 0, implicitlyWait 5000]");
+    }
+  }
+
+  public void testAsyncPollsSuppressUntilDone() throws Exception {
+    WTFConfig.of(driver).setImplicitWaitInMillis(5000L);
+    final List<String> seen = new ArrayList<String>();
+    WTFAsync async = new WTFAsync(Executors.newScheduledThreadPool(1));
+    String value = async.until(driver, newWait(), new Function<WebDriver, String>() {
+      public String apply(WebDriver driver) {
+        seen.add(log.toString());
+        return seen.size() < 3 ? null : "done";
+      }
+    }).get(5, TimeUnit.SECONDS);
+    Assert.assertEquals(value, "done");
+    Assert.assertEquals(seen.toString(),
+        "[[implicitlyWait 0], [implicitlyWait 0], [implicitlyWait 0]]");
+    Assert.assertEquals(log.toString(), "[implicitlyWait 0, implicitlyWait 5000]");
+  }
+
+  public void testNoCommandWithoutImplicitWait() {
+    newWait().until(new Function<WebDriver, Boolean>() {
+      public Boolean apply(WebDriver driver) {
+        return true;
+      }
+    });
+    Assert.assertTrue(log.isEmpty());
+  }
+}
@@ -0,0 +1,89 @@
+package org.wtf.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wtf.utils.WTFMetrics.Operation;
+import org.wtf.utils.WTFMetrics.OperationStats;
+
+
+@Test
+public class WTFMetricsTest {
+
+  @BeforeMethod
+  public void reset() {
+    WTFMetrics.reset();
+  }
+
+  public void testOutermostOperationIsRecorded() {
+    WTFMetrics.enter(Operation.GET_VALUE);
+    try {
+      WTFMetrics.poll();
+      WTFMetrics.command();
+
+      // getValue reads through getAttributeValue, which is not recorded
+      WTFMetrics.enter(Operation.GET_ATTRIBUTE_VALUE);
+      try {
+        Assert.assertEquals(WTFMetrics.current(), Operation.GET_VALUE);
+        WTFMetrics.poll();
+        WTFMetrics.command();
+        WTFMetrics.staleRetry();
+      } finally {
+        WTFMetrics.exit();
+      }
+    } finally {
+      WTFMetrics.exit();
+    }
+
+    OperationStats stats = WTFMetrics.of(Operation.GET_VALUE);
+    Assert.assertEquals(stats.getCalls(), 1L);
+    Assert.assertEquals(stats.getPolls(), 2L);
+    Assert.assertEquals(stats.getCommands(), 2L);
+    Assert.assertEquals(stats.getStaleRetries(), 1L);
+    Assert.assertEquals(stats.getTimeouts(), 0L);
+    Assert.assertEquals(WTFMetrics.of(Operation.GET_ATTRIBUTE_VALUE).getCalls(), 0L);
+    Assert.assertNull(WTFMetrics.current());
+  }
+
+  public void testNothingIsRecordedOutsideOperations() {
+    WTFMetrics.poll();
+    WTFMetrics.command();
+    WTFMetrics.timeout();
+    for (Operation operation : Operation.values()) {
+      Assert.assertEquals(WTFMetrics.of(operation).getCalls(), 0L);
+    }
+  }
+
+  public void testDisabled() {
+    WTFMetrics.setEnabled(false);
+    try {
+      WTFMetrics.enter(Operation.CLICK);
+      WTFMetrics.exit();
+    } finally {
+      WTFMetrics.setEnabled(true);
+    }
+    Assert.assertEquals(WTFMetrics.of(Operation.CLICK).getCalls(), 0L);
+  }
+
+  public void testOperationNames() {
+    Assert.assertEquals(Operation.CLICK.toString(), "click");
+    Assert.assertEquals(Operation.GET_ATTRIBUTE_VALUE.toString(), "getAttributeValue");
+    Assert.assertEquals(Operation.SCROLL_NON_BROWSER_SCROLLERS_VERTICALLY.toString(),
+        "scrollNonBrowserScrollersVertically");
+  }
+
+  public void testBuckets() {
+    // two buckets per power of two, each bound above by its upper bound
+    Assert.assertEquals(WTFMetrics.bucket(0L), 0);
+    Assert.assertEquals(WTFMetrics.bucket(1L), 1);
+    Assert.assertEquals(WTFMetrics.bucket(2L), 2);
+    Assert.assertEquals(WTFMetrics.bucket(3L), 3);
+    Assert.assertEquals(WTFMetrics.bucket(4L), 4);
+    Assert.assertEquals(WTFMetrics.bucket(6L), 5);
+    for (long micros = 1; micros < 1000000000L; micros = micros * 3 + 1) {
+      int bucket = WTFMetrics.bucket(micros);
+      Assert.assertTrue(WTFMetrics.upperBound(bucket) > micros);
+      Assert.assertTrue(bucket == 0 || WTFMetrics.upperBound(bucket - 1) <= micros);
+    }
+  }
+}
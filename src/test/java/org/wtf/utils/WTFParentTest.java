@@ -0,0 +1,81 @@
+package org.wtf.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+@Test
+public class WTFParentTest {
+
+  private final List<String> log = new ArrayList<String>();
+
+  /** The number of times the parent was rendered, the first of which goes stale. */
+  private int renders;
+
+  /** True when the page has no parent. */
+  private boolean absent;
+
+  /**
+   * A driver rendering the parent again at each lookup, and an element
+   * whose children are found unless it is the first rendering, gone stale.
+   */
+  private final Fake.Answer page = new Fake.Answer() {
+    public Object answer(Object fake, String called, Object[] args) {
+      String name = fake.toString();
+      log.add(name + "." + called);
+      if ("executeScript".equals(called)) {
+        log.add(String.valueOf(((Object[]) args[1])[0]));
+        return absent ? null : Fake.element("parent" + ++renders, this);
+      } else if ("findElements".equals(called) && name.equals("driver")) {
+        return absent ? Collections.emptyList()
+            : Collections.singletonList(Fake.element("parent" + ++renders, this));
+      } else if ("findElements".equals(called)) {
+        if ("parent1".equals(name)) {
+          throw new StaleElementReferenceException("rendered again");
+        }
+        return Collections.singletonList(Fake.element("child", this));
+      }
+      return null;
+    }
+  };
+
+  @BeforeMethod
+  public void setUp() {
+    log.clear();
+    renders = 0;
+    absent = false;
+  }
+
+  public void testStaleParentIsLocatedAgain() {
+    WebDriver driver = Fake.driver(page);
+    WTFParent parent = WTFParent.of(driver, By.id("orders"));
+    Assert.assertEquals(parent.findElements(By.tagName("a")).toString(), "[child]");
+    Assert.assertEquals(parent.findElements(By.tagName("a")).toString(), "[child]");
+    Assert.assertEquals(log.toString(), "[driver.findElements, parent1.findElements, "
+        + "driver.findElements, parent2.findElements, parent2.findElements]");
+  }
+
+  public void testChainIsLocatedByOneScript() {
+    WebDriver driver = Fake.driver(page, JavascriptExecutor.class);
+    WTFParent parent = WTFParent.of(driver, By.id("orders")).within(By.className("row"));
+    Assert.assertEquals(parent.getWrappedElement().toString(), "parent1");
+    Assert.assertEquals(log.toString(),
+        "[driver.executeScript, [[id, orders], [class name, row]]]");
+  }
+
+  public void testAbsentParentHasNoChildren() {
+    absent = true;
+    WebDriver driver = Fake.driver(page, JavascriptExecutor.class);
+    Assert.assertTrue(WTFParent.of(driver, By.id("orders")).findElements(By.tagName("a"))
+        .isEmpty());
+  }
+}
@@ -0,0 +1,45 @@
+package org.wtf.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class WTFPollingTest {
+
+  public void testFixed() {
+    WTFPolling polling = WTFPolling.fixed(500L);
+
+    // every poll waits the same
+    Assert.assertEquals(polling.delayInMillis(1), 500L);
+    Assert.assertEquals(polling.delayInMillis(100), 500L);
+  }
+
+  public void testBackoffWithoutJitter() {
+    WTFPolling polling = WTFPolling.backoff(5L, 2.0, 100L, 0);
+
+    // the delay doubles from the initial one
+    Assert.assertEquals(polling.delayInMillis(1), 5L);
+    Assert.assertEquals(polling.delayInMillis(2), 10L);
+    Assert.assertEquals(polling.delayInMillis(3), 20L);
+
+    // and stops growing at the cap
+    Assert.assertEquals(polling.delayInMillis(6), 100L);
+    Assert.assertEquals(polling.delayInMillis(10000), 100L);
+  }
+
+  public void testBackoffJitterStaysInRange() {
+    WTFPolling polling = WTFPolling.backoff(100L, 1.0, 100L, 0.2);
+
+    // every delay is spread by at most 20%
+    for (int i = 1; i < 1000; i++) {
+      long delay = polling.delayInMillis(i);
+      Assert.assertTrue(delay >= 80L && delay <= 120L, "delay " + delay);
+    }
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testBackoffRejectsShrinkingFactor() {
+    WTFPolling.backoff(5L, 0.5, 100L, 0);
+  }
+}
@@ -0,0 +1,46 @@
+package org.wtf.utils;
+
+import java.lang.ref.WeakReference;
+
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class WTFSessionTest {
+
+  public void testWaitOutlivesCollections() {
+    WebDriver driver = Fake.driver(Fake.NOTHING);
+    WTFWait wait = WTFSession.of(driver).getWait(driver);
+    System.gc();
+    Assert.assertSame(WTFSession.of(driver).getWait(driver), wait);
+  }
+
+  public void testWaitDoesNotKeepTheDriver() throws InterruptedException {
+    WebDriver driver = Fake.driver(Fake.NOTHING);
+    WTFSession.of(driver).getWait(driver);
+    WeakReference<WebDriver> collected = new WeakReference<WebDriver>(driver);
+    driver = null;
+    for (int i = 0; i < 50 && collected.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+    Assert.assertNull(collected.get());
+  }
+
+  public void testDefaultTimeoutIsALibraryDefault() {
+    WebDriver driver = Fake.driver(Fake.NOTHING);
+    WTFUtil.setDefaultWaitTimeout(5L);
+    try {
+      Assert.assertEquals(WTFConfig.defaults().getTimeoutInSeconds(), 5L);
+      Assert.assertEquals(WTFConfig.of(driver).getTimeoutInSeconds(), 5L);
+      WTFUtil.setDefaultWaitTimeout(driver, 2L);
+      Assert.assertEquals(WTFConfig.of(driver).getTimeoutInSeconds(), 2L);
+    } finally {
+      WTFUtil.setDefaultWaitTimeout(null);
+    }
+    Assert.assertEquals(WTFConfig.defaults().getTimeoutInSeconds(),
+        WTFConfig.DEFAULT_TIMEOUT_IN_SECONDS);
+  }
+}
@@ -0,0 +1,144 @@
+package org.wtf.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+
+@Test
+public class WTFSnapshotTest {
+
+  /** As the snapshot script serializes a page. */
+  private static final String PAGE = "<html><head data-wtf-hidden=\"\"></head><body>"
+      + "<div id=\"total\" class=\"sum big\">Total: <b>42</b>"
+      + "<span data-wtf-hidden=\"\">(hidden)</span></div>"
+      + "<ul><li class=\"row\">One</li><li data-wtf-sid=\"7\" class=\"row paid\">Two</li>"
+      + "<li class=\"row\"><a href=\"/edit/3\">Edit  three</a></li></ul>"
+      + "<input id=\"name\" name=\"name\" value=\"John\" disabled=\"\">"
+      + "<input id=\"terms\" type=\"checkbox\" value=\"on\" checked=\"\">"
+      + "<textarea id=\"notes\" value=\"Fragile &amp; heavy\">Fragile &amp; heavy</textarea>"
+      + "<select id=\"size\" value=\"m\"><option value=\"s\">S</option>"
+      + "<option value=\"m\" selected=\"\">M</option></select>"
+      + "<p id=\"gone\" data-wtf-hidden=\"\">Nothing</p></body></html>";
+
+  private int scripts;
+  private boolean stale;
+
+  /** What the snapshot script answers, one per call. */
+  private LinkedList<Map<String, Object>> pulls;
+
+  private WTFSnapshot snapshot;
+
+  private static Map<String, Object> pulled(String key, Object value) {
+    Map<String, Object> pulled = new HashMap<String, Object>();
+    pulled.put("id", "snapshot");
+    pulled.put(key, value);
+    return pulled;
+  }
+
+  @BeforeMethod
+  public void setUp() {
+    scripts = 0;
+    stale = false;
+    pulls = new LinkedList<Map<String, Object>>();
+    pulls.add(pulled("html", PAGE));
+    snapshot = new WTFSnapshot(Fake.driver(new Fake.Answer() {
+      public Object answer(Object fake, String called, Object[] args) {
+        if ("executeScript".equals(called)) {
+          scripts++;
+          return ((Object[]) args[1]).length == 1 ? stale : pulls.removeFirst();
+        }
+        return null;
+      }
+    }, JavascriptExecutor.class));
+  }
+
+  public void testQueriesAreAnsweredLocally() {
+    Assert.assertEquals(snapshot.getText(By.id("total")), "Total: 42");
+    Assert.assertTrue(snapshot.present(By.className("paid")));
+    Assert.assertTrue(snapshot.notPresent(By.className("pai")));
+    Assert.assertTrue(snapshot.visible(By.tagName("li")));
+    Assert.assertTrue(snapshot.invisible(By.id("gone")));
+    Assert.assertEquals(snapshot.getText(By.id("gone")), "");
+    Assert.assertTrue(snapshot.textPresent(By.cssSelector("li.paid"), "Two"));
+    Assert.assertEquals(snapshot.getValue(By.name("name")), "John");
+    Assert.assertEquals(snapshot.getAttributeValue(By.id("name"), "disabled"), "true");
+    Assert.assertNull(snapshot.getAttributeValue(By.id("name"), "readonly"));
+    Assert.assertTrue(snapshot.selected(By.id("terms")));
+    Assert.assertTrue(snapshot.attributeValuePresent(By.linkText("Edit three"), "href", "/3"));
+    Assert.assertEquals(snapshot.getTexts(By.cssSelector(".row")),
+        Arrays.asList("One", "Two", "Edit three"));
+    Assert.assertEquals(scripts, 1);
+  }
+
+  public void testFieldValues() {
+    Assert.assertEquals(snapshot.getValue(By.id("notes")), "Fragile & heavy");
+    Assert.assertEquals(snapshot.getValue(By.id("size")), "m");
+    Assert.assertEquals(scripts, 1);
+  }
+
+  public void testXPath() {
+    Assert.assertEquals(snapshot.getText(By.xpath("//ul/li[2]")), "Two");
+    Assert.assertEquals(snapshot.getText(By.xpath("//li[last()]/a")), "Edit three");
+    Assert.assertEquals(snapshot.getText(By.xpath("/html/body/div[@id='total']/b")), "42");
+    Assert.assertEquals(snapshot.getText(
+        By.xpath("//li[contains(@class, 'row') and not(a)][position() = 2]")), "Two");
+    Assert.assertEquals(snapshot.getText(By.xpath("//a[normalize-space() = 'Edit three']/..")),
+        "Edit three");
+    Assert.assertEquals(snapshot.getTexts(By.xpath("//*[text() = 'One' or b]")),
+        Arrays.asList("Total: 42", "One"));
+    Assert.assertTrue(snapshot.notPresent(By.xpath("//li[4]")));
+  }
+
+  public void testReadAll() {
+    Map<String, By> locators = new LinkedHashMap<String, By>();
+    locators.put("total", By.id("total"));
+    locators.put("name", By.id("name"));
+    Map<String, Map<String, String>> values = snapshot.readAll(locators, WTFUtil.TEXT, "id");
+    Assert.assertEquals(values.get("total").get(WTFUtil.TEXT), "Total: 42");
+    Assert.assertEquals(values.get("name").get("id"), "name");
+  }
+
+  public void testStale() {
+    Assert.assertFalse(snapshot.isStale());
+    stale = true;
+    Assert.assertTrue(snapshot.isStale());
+  }
+
+  public void testRefreshPatchesChangedSubtrees() {
+    pulls.add(pulled("patches", Arrays.asList(Arrays.asList("7",
+        "<li data-wtf-sid=\"7\" class=\"row paid\">Deux</li>"))));
+    snapshot.refresh();
+    Assert.assertEquals(snapshot.getTexts(By.tagName("li")),
+        Arrays.asList("One", "Deux", "Edit three"));
+    Assert.assertEquals(snapshot.getText(By.id("total")), "Total: 42");
+    Assert.assertEquals(scripts, 2);
+  }
+
+  public void testRefreshPullsThePageWhenAPatchDoesNotApply() {
+    pulls.add(pulled("patches", Arrays.asList(Arrays.asList("99", "<li>Gone</li>"))));
+    pulls.add(pulled("html", "<html><body><p id=\"total\">0</p></body></html>"));
+    snapshot.refresh();
+    Assert.assertEquals(snapshot.getText(By.id("total")), "0");
+    Assert.assertEquals(scripts, 3);
+  }
+
+  @Test(expectedExceptions = NoSuchElementException.class)
+  public void testMissingElement() {
+    snapshot.getText(By.id("missing"));
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnsupportedXPath() {
+    snapshot.present(By.xpath("//li/following-sibling::li"));
+  }
+}
@@ -0,0 +1,91 @@
+package org.wtf.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wtf.utils.WTFMetrics.Operation;
+
+
+@Test
+public class WTFStaleRetryTest {
+
+  private final List<String> log = new ArrayList<String>();
+
+  /** The number of interactions failing with a stale element. */
+  private int stale;
+
+  private WebDriver driver;
+
+  /** A page rendering the element again at each lookup. */
+  private final Fake.Answer page = new Fake.Answer() {
+    public Object answer(Object fake, String called, Object[] args) {
+      if ("findElements".equals(called)) {
+        log.add(called);
+        return Collections.singletonList(Fake.element("element", this));
+      } else if ("isDisplayed".equals(called) || "isEnabled".equals(called)) {
+        return true;
+      } else if ("click".equals(called) || "clear".equals(called)
+          || "sendKeys".equals(called)) {
+        log.add(called);
+        if (stale-- > 0) {
+          throw new StaleElementReferenceException("rendered again");
+        }
+      }
+      return null;
+    }
+  };
+
+  @BeforeMethod
+  public void setUp() {
+    log.clear();
+    WTFMetrics.reset();
+    driver = Fake.driver(page);
+  }
+
+  public void testInteractionIsRepeatedOnTheElementFoundAgain() {
+    stale = 2;
+    WTFUtil.click(driver, By.id("save"));
+    Assert.assertEquals(log.toString(),
+        "[findElements, click, findElements, click, findElements, click]");
+    Assert.assertEquals(WTFMetrics.of(Operation.CLICK).getStaleRetries(), 2L);
+  }
+
+  public void testRetriesAreBounded() {
+    WTFConfig.of(driver).setStaleRetries(1);
+    stale = 2;
+    try {
+      WTFUtil.type(driver, By.id("name"), "John");
+      Assert.fail("Expected a stale element");
+    } catch (StaleElementReferenceException expected) {
+      Assert.assertEquals(log.toString(), "[findElements, sendKeys, findElements, sendKeys]");
+    }
+  }
+
+  public void testAsyncInteractionIsRepeated() throws Exception {
+    WTFAsync async = new WTFAsync(Executors.newScheduledThreadPool(1));
+    stale = 1;
+    async.click(driver, By.id("save")).get(5, TimeUnit.SECONDS);
+    Assert.assertEquals(log.toString(), "[findElements, click, findElements, click]");
+
+    log.clear();
+    WTFConfig.of(driver).setStaleRetries(1);
+    stale = 2;
+    try {
+      async.clear(driver, By.id("name")).get(5, TimeUnit.SECONDS);
+      Assert.fail("Expected a stale element");
+    } catch (ExecutionException expected) {
+      Assert.assertTrue(expected.getCause() instanceof StaleElementReferenceException);
+      Assert.assertEquals(log.toString(), "[findElements, clear, findElements, clear]");
+    }
+  }
+}
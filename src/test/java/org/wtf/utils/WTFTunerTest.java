@@ -0,0 +1,80 @@
+package org.wtf.utils;
+
+import java.io.File;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+@Test
+public class WTFTunerTest {
+
+  public static final String CONDITION = "visibility of element located by By.className: header";
+
+  public void testUntunedConditionKeepsDefaults() {
+    WTFTuner tuner = new WTFTuner(null);
+    tuner.setMinSamples(5);
+
+    // not enough samples yet
+    for (int i = 0; i < 4; i++) {
+      tuner.record(CONDITION, 50L);
+    }
+    Assert.assertEquals(tuner.firstDelayInMillis(CONDITION, 500L), 500L);
+    Assert.assertEquals(tuner.timeoutInMillis(CONDITION, 30000L), 30000L);
+  }
+
+  public void testTunedConditionUsesPercentiles() {
+    WTFTuner tuner = new WTFTuner(null);
+    tuner.setMinSamples(5);
+
+    // a condition that is always ready within 50 ms
+    for (int i = 0; i < 100; i++) {
+      tuner.record(CONDITION, 50L);
+    }
+
+    // the first delay is about the median
+    long firstDelay = tuner.firstDelayInMillis(CONDITION, 500L);
+    Assert.assertTrue(firstDelay >= 50L && firstDelay < 100L, "first delay " + firstDelay);
+
+    // the time out is at least a second, and far below the configured one
+    Assert.assertEquals(tuner.timeoutInMillis(CONDITION, 30000L), 1000L);
+  }
+
+  public void testTimeoutsRestoreTheConfiguredTimeout() {
+    WTFTuner tuner = new WTFTuner(null);
+    tuner.setMinSamples(5);
+
+    // a condition that keeps timing out at 30 s
+    for (int i = 0; i < 10; i++) {
+      tuner.record(CONDITION, 30000L);
+    }
+    Assert.assertEquals(tuner.timeoutInMillis(CONDITION, 30000L), 30000L);
+  }
+
+  public void testSaveAndLoad() throws Exception {
+    File file = File.createTempFile("wtf-tuner", ".properties");
+    file.deleteOnExit();
+
+    WTFTuner tuner = new WTFTuner(file);
+    for (int i = 0; i < 25; i++) {
+      tuner.record(CONDITION, 2000L);
+    }
+    tuner.save();
+
+    // the histograms survive the round trip
+    WTFTuner loaded = WTFTuner.load(file);
+    Assert.assertEquals(loaded.samples(CONDITION), 25L);
+    Assert.assertEquals(loaded.firstDelayInMillis(CONDITION, 500L),
+        tuner.firstDelayInMillis(CONDITION, 500L));
+  }
+
+  public void testBuckets() {
+    // buckets grow by a factor of sqrt(2) and cover their upper bound
+    Assert.assertEquals(WTFTuner.bucket(1L), 0);
+    Assert.assertEquals(WTFTuner.bucket(2L), 2);
+    Assert.assertEquals(WTFTuner.bucket(3L), 4);
+    for (long millis = 1; millis < 100000L; millis *= 3) {
+      Assert.assertTrue(WTFTuner.upperBound(WTFTuner.bucket(millis)) >= millis);
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package org.wtf.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wtf.utils.WTFMetrics.Operation;
+
+import com.google.common.base.Function;
+
+
+@Test
+public class WTFWaitTest {
+
+  private final WebDriver driver = Fake.driver(Fake.NOTHING);
+
+  /** The number of times the condition was evaluated, then awaited in the page. */
+  private int evaluated;
+  private int awaited;
+
+  /**
+   * A page failing the condition at once when awaiting it.
+   */
+  private final Fake.Answer failing = new Fake.Answer() {
+    public Object answer(Object fake, String called, Object[] args) {
+      if ("executeScript".equals(called)) {
+        evaluated++;
+        return false;
+      } else if ("executeAsyncScript".equals(called)) {
+        awaited++;
+      }
+      return null;
+    }
+  };
+
+  /**
+   * Goes stale at every poll.
+   */
+  private static final Function<WebDriver, Boolean> STALE = new Function<WebDriver, Boolean>() {
+    public Boolean apply(WebDriver driver) {
+      throw new StaleElementReferenceException("rendered again");
+    }
+  };
+
+  @BeforeMethod
+  public void setUp() {
+    evaluated = 0;
+    awaited = 0;
+  }
+
+  public void testIgnoredExceptionsKeepPolling() {
+    WTFWait wait = new WTFWait(driver, 5, WTFPolling.fixed(10));
+    wait.withTimeout(100, TimeUnit.MILLISECONDS).withMessage("the order is saved")
+        .ignoring(StaleElementReferenceException.class);
+    long start = System.nanoTime();
+    try {
+      wait.until(STALE);
+      Assert.fail("Expected a time out");
+    } catch (TimeoutException e) {
+      Assert.assertTrue(e.getMessage().startsWith("Timed out after 100 ms: the order is saved"),
+          e.getMessage());
+      Assert.assertTrue(e.getCause() instanceof StaleElementReferenceException);
+    }
+    Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+  }
+
+  @Test(expectedExceptions = StaleElementReferenceException.class)
+  public void testOtherExceptionsEndTheWait() {
+    new WTFWait(driver, 5, WTFPolling.fixed(10)).until(STALE);
+  }
+
+  public void testFailedAwaitWaitsForTheNextPoll() {
+    WebDriver page = Fake.driver(failing, JavascriptExecutor.class);
+    WTFConfig.of(page).setWaitMode(WTFConfig.WaitMode.PUSH);
+    try {
+      new WTFWait(page, 1, WTFPolling.fixed(100)).until(
+          new WTFScriptCondition<Boolean>("return false;", "never", new Object[0]));
+      Assert.fail("Expected a time out");
+    } catch (TimeoutException expected) {
+      // about one await per delay, rather than as many as fit in the time out
+      Assert.assertTrue(awaited > 0 && awaited <= 11, "awaited " + awaited);
+    }
+  }
+
+  public void testAwaitIsPartOfThePoll() {
+    WebDriver page = Fake.driver(failing, JavascriptExecutor.class);
+    WTFConfig.of(page).setWaitMode(WTFConfig.WaitMode.PUSH);
+    WTFMetrics.reset();
+    WTFMetrics.enter(Operation.VISIBLE);
+    try {
+      new WTFWait(page, 1, WTFPolling.fixed(20)).withTimeout(200, TimeUnit.MILLISECONDS)
+          .until(new WTFScriptCondition<Boolean>("return false;", "never", new Object[0]));
+      Assert.fail("Expected a time out");
+    } catch (TimeoutException expected) {
+      // counted below
+    } finally {
+      WTFMetrics.exit();
+    }
+    Assert.assertTrue(awaited > 0);
+    Assert.assertEquals(WTFMetrics.of(Operation.VISIBLE).getPolls(), (long) evaluated);
+  }
+
+  public void testPollingEveryReplacesThePolling() {
+    WTFWait wait = new WTFWait(driver, 5, WTFPolling.backoff(5L, 2.0, 100L, 0));
+    wait.pollingEvery(50, TimeUnit.MILLISECONDS);
+    Assert.assertEquals(wait.getPolling().delayInMillis(10), 50L);
+    Assert.assertEquals(wait.getTimeoutInMillis(), 5000L);
+  }
+}
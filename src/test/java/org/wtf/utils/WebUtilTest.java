@@ -1,6 +1,10 @@
 package org.wtf.utils;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.openqa.selenium.By;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.Select;
 import org.testng.Assert;
@@ -112,6 +116,23 @@ public class WebUtilTest extends WTFTest{
     Assert.assertTrue(visible(env.getDriver(), parent, By.className(btn1ClasName)));
   }
 
+  public void testAnyVisible(WTFEnv env) {
+    // load the test page
+    env.getDriver().get(CLICK_FILE);
+
+    // the invisible button never shows, the first button does
+    Assert.assertEquals(anyVisible(env.getDriver(), By.className(btn3Invisible),
+        By.className(btn1ClasName)), 1);
+
+    // wait for the same outcomes evaluated by one script per poll
+    WTFBranch branch = waitForAny(env.getDriver(),
+        WTFExpectedConditions.visibilityOfElementLocatedByScript(null, By.className(btn3Invisible)),
+        WTFExpectedConditions.textToBePresentInElementByScript(null,
+            By.className(divWithTextClassName), "Hello"));
+    Assert.assertEquals(branch.getIndex(), 1);
+    Assert.assertEquals(branch.getValue(), Boolean.TRUE);
+  }
+
   public void testInvisible(WTFEnv env) {
     // load the test page
     env.getDriver().get(CLICK_FILE);
@@ -291,6 +312,27 @@ public class WebUtilTest extends WTFTest{
     Assert.assertEquals(getValue(env.getDriver(), parent, By.className(textBoxClearClassName)), "Test clear");
   }
 
+  public void testReadAll(WTFEnv env) {
+    // load the test page
+    env.getDriver().get(CLICK_FILE);
+
+    // read text and value of several elements at once
+    Map<String, By> locators = new LinkedHashMap<String, By>();
+    locators.put("div", By.className(divWithTextClassName));
+    locators.put("textbox", By.className(textBoxClearClassName));
+    Map<String, Map<String, String>> values = readAll(env.getDriver(), locators, TEXT, "value");
+    Assert.assertEquals(values.get("div").get(TEXT), "Hello");
+    Assert.assertEquals(values.get("textbox").get("value"), "Test clear");
+
+    // find the sub DOM
+    WebElement parent = env.getDriver().findElement(By.className(parentClassName));
+
+    // read inside the sub DOM
+    values = readAll(env.getDriver(), parent, locators, TEXT, "value");
+    Assert.assertEquals(values.get("div").get(TEXT), "Hello");
+    Assert.assertEquals(values.get("textbox").get("value"), "Test clear");
+  }
+
   public void testClear(WTFEnv env) {
     // load the test page
     env.getDriver().get(CLICK_FILE);
@@ -402,4 +444,24 @@ public class WebUtilTest extends WTFTest{
     // verify the button value has changed
     Assert.assertEquals(getValue(env.getDriver(), By.className(btnHoverClassName)), "hoverd");
   }
+
+  public void testSetDefaultWaitTimeout(WTFEnv env) {
+    // load the test page
+    env.getDriver().get(CLICK_FILE);
+
+    // shorten the time out of this session only
+    setDefaultWaitTimeout(env.getDriver(), 1L);
+
+    // a missing element times out with the session time out
+    long start = System.currentTimeMillis();
+    try {
+      present(env.getDriver(), By.className("missing"));
+      Assert.fail("Expected a time out");
+    } catch (TimeoutException e) {
+      Assert.assertTrue(System.currentTimeMillis() - start
+          < WTFConfig.DEFAULT_TIMEOUT_IN_SECONDS * 1000);
+    } finally {
+      setDefaultWaitTimeout(env.getDriver(), null);
+    }
+  }
 }